@@ -0,0 +1,113 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Inputs shared by the benchmarks: the files under data/ and synthetic inputs generated
+ * with a fixed seed, so every run measures the same work.
+ *
+ * The data directory is read from the "algo1.data" system property and defaults to data/,
+ * so the benchmarks are meant to be run from the root of the project. When a course file
+ * is not bundled, a synthetic input of the same shape is used instead.
+ */
+final class BenchmarkData {
+	
+	static final String BUNDLED = "bundled";
+	static final String SCALED = "scaled";
+	
+	private static final long SEED = 42;
+	
+	private BenchmarkData() {
+	}
+	
+	static File dataFile(String name) {
+		return new File(System.getProperty("algo1.data", "data"), name);
+	}
+	
+	static int[] loadInts(String input, String fileName, int scaledCount) throws IOException {
+		if (BUNDLED.equals(input)) {
+			return BinaryDataFile.loadInts(dataFile(fileName));
+		}
+		return randomInts(scaledCount, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @return Random numbers in [0, bound)
+	 */
+	static int[] randomInts(int count, int bound) {
+		Random random = new Random(SEED);
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = random.nextInt(bound);
+		}
+		return values;
+	}
+	
+	/**
+	 * @return Random numbers in [-bound, bound]
+	 */
+	static long[] randomLongs(int count, long bound) {
+		Random random = new Random(SEED);
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = (long) ((random.nextDouble() * 2 - 1) * bound);
+		}
+		return values;
+	}
+	
+	/**
+	 * Directed graph where every vertex has an edge to the next one, so there is one big
+	 * component, plus random edges that mostly point forward and split off smaller components.
+	 */
+	static CsrGraph randomDirectedGraph(int vertexCount, int edgesPerVertex) {
+		Random random = new Random(SEED);
+		CsrGraph.Builder builder = new CsrGraph.Builder().ensureVertexCount(vertexCount);
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			if (vertex % 100 != 99) {
+				builder.addEdge(vertex, (vertex + 1) % vertexCount);
+			}
+			for (int i = 1; i < edgesPerVertex; i++) {
+				int target = vertex + random.nextInt(200) - 20;
+				builder.addEdge(vertex, Math.floorMod(target, vertexCount));
+			}
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Undirected weighted graph stored with both directions of each edge, connected by a cycle.
+	 */
+	static CsrGraph randomWeightedGraph(int vertexCount, int edgesPerVertex, int maxWeight) {
+		Random random = new Random(SEED);
+		CsrGraph.Builder builder = new CsrGraph.Builder().ensureVertexCount(vertexCount);
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			for (int i = 0; i < edgesPerVertex; i++) {
+				int target = i == 0 ? (vertex + 1) % vertexCount : random.nextInt(vertexCount);
+				int weight = 1 + random.nextInt(maxWeight);
+				builder.addEdge(vertex, target, weight);
+				builder.addEdge(target, vertex, weight);
+			}
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Undirected graph stored with both directions of each edge, connected by a cycle.
+	 */
+	static CsrGraph randomUndirectedGraph(int vertexCount, int edgesPerVertex) {
+		Random random = new Random(SEED);
+		CsrGraph.Builder builder = new CsrGraph.Builder().ensureVertexCount(vertexCount);
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			for (int i = 0; i < edgesPerVertex; i++) {
+				int target = i == 0 ? (vertex + 1) % vertexCount : random.nextInt(vertexCount);
+				if (target != vertex) {
+					builder.addEdge(vertex, target);
+					builder.addEdge(target, vertex);
+				}
+			}
+		}
+		return builder.build();
+	}
+}
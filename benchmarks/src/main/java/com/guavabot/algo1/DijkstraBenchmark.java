@@ -0,0 +1,52 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * dijkstraData.txt has 200 vertices; the scaled graph has 1 million vertices and 16 million edges.
+ * {@link Dijkstra.HeapMode#REMOVE_AND_REINSERT} scans the heap on every relaxation, so it has its own
+ * benchmark on a smaller graph: {@link DijkstraRemoveAndReinsertBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DijkstraBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	@Param({"INDEXED", "LAZY_DELETION"})
+	public Dijkstra.HeapMode heapMode;
+	
+	private CsrGraph graph;
+	private Dijkstra dijkstra;
+	
+	@Setup
+	public void setUp() throws IOException {
+		graph = BenchmarkData.BUNDLED.equals(input)
+				? BinaryDataFile.loadWeightedAdjacencyList(BenchmarkData.dataFile("dijkstraData.txt"))
+				: BenchmarkData.randomWeightedGraph(1_000_000, 8, 1000);
+		dijkstra = new Dijkstra(heapMode);
+	}
+	
+	@Benchmark
+	public int[] findShortestPaths() {
+		return dijkstra.findShortestPaths(graph, 0);
+	}
+}
@@ -0,0 +1,48 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Dijkstra.HeapMode#REMOVE_AND_REINSERT} removes relaxed vertices with a linear scan of the heap,
+ * so its scaled graph has 20,000 vertices instead of the 1 million of {@link DijkstraBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DijkstraRemoveAndReinsertBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private CsrGraph graph;
+	private Dijkstra dijkstra;
+	
+	@Setup
+	public void setUp() throws IOException {
+		graph = BenchmarkData.BUNDLED.equals(input)
+				? BinaryDataFile.loadWeightedAdjacencyList(BenchmarkData.dataFile("dijkstraData.txt"))
+				: BenchmarkData.randomWeightedGraph(20_000, 8, 1000);
+		dijkstra = new Dijkstra(Dijkstra.HeapMode.REMOVE_AND_REINSERT);
+	}
+	
+	@Benchmark
+	public int[] findShortestPaths() {
+		return dijkstra.findShortestPaths(graph, 0);
+	}
+}
@@ -0,0 +1,49 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Median.txt has 10,000 numbers; the scaled input has 1 million.
+ * Every invocation adds all the numbers to a new maintainer and sums the medians.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapMedianMantainerBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private int[] numbers;
+	
+	@Setup
+	public void setUp() throws IOException {
+		numbers = BenchmarkData.loadInts(input, "Median.txt", 1_000_000);
+	}
+	
+	@Benchmark
+	public int addAndGetMedian() {
+		HeapMedianMantainer medianer = new HeapMedianMantainer();
+		int medianSum = 0;
+		for (int number : numbers) {
+			medianSum += medianer.addAndGetMedian(number);
+		}
+		return medianSum;
+	}
+}
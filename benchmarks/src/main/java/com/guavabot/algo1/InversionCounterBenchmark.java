@@ -0,0 +1,58 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * IntegerArray.txt has 100,000 numbers; the scaled input has 10 million.
+ * Every invocation counts a fresh copy, because the counters sort their input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InversionCounterBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private int[] numbers;
+	private int[] buffer;
+	private InversionCounter counter;
+	
+	@Setup
+	public void setUp() throws IOException {
+		numbers = BenchmarkData.loadInts(input, "IntegerArray.txt", 10_000_000);
+		buffer = new int[numbers.length];
+		counter = new InversionCounter();
+	}
+	
+	@Benchmark
+	public long recursive() {
+		return counter.sortAndCountInversions(numbers.clone());
+	}
+	
+	@Benchmark
+	public long inPlace() {
+		return counter.sortAndCountInversionsInPlace(numbers.clone(), buffer);
+	}
+	
+	@Benchmark
+	public long parallel() {
+		return counter.sortAndCountInversionsParallel(numbers.clone());
+	}
+}
@@ -0,0 +1,61 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SCC.txt has 875,714 vertices and about 5 million edges, and a random graph of that size
+ * is used when it is not bundled. The scaled graph has 5 million vertices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class KosarajuSCCBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private CsrGraph graph;
+	
+	@Setup
+	public void setUp() throws IOException {
+		File file = BenchmarkData.dataFile("SCC.txt");
+		if (BenchmarkData.BUNDLED.equals(input) && (file.exists() || BinaryDataFile.binaryFileFor(file).exists())) {
+			graph = BinaryDataFile.loadEdgeList(file);
+		} else {
+			int vertexCount = BenchmarkData.BUNDLED.equals(input) ? 875_714 : 5_000_000;
+			graph = BenchmarkData.randomDirectedGraph(vertexCount, 6);
+		}
+	}
+	
+	@Benchmark
+	public int[] kosaraju() {
+		return new KosarajuSCC(KosarajuSCC.Mode.KOSARAJU).findSCC(graph);
+	}
+	
+	@Benchmark
+	public int[] pathBased() {
+		return new KosarajuSCC(KosarajuSCC.Mode.PATH_BASED).findSCC(graph);
+	}
+	
+	@Benchmark
+	public int[] parallel() {
+		return new ParallelSCC().findSCC(graph);
+	}
+}
@@ -0,0 +1,75 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * QuickSort.txt has 10,000 numbers; the scaled input has 10 million.
+ * Every invocation sorts a fresh copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuickSorterBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	@Param({"first", "last", "medianOfThree", "random", "ninther", "dualPivot", "threeWay", "intro", "parallel"})
+	public String pivot;
+	
+	private int[] numbers;
+	private QuickSorter quickSorter;
+	
+	@Setup
+	public void setUp() throws IOException {
+		numbers = BenchmarkData.loadInts(input, "QuickSort.txt", 10_000_000);
+		quickSorter = newQuickSorter(pivot);
+	}
+	
+	private static QuickSorter newQuickSorter(String pivot) {
+		switch (pivot) {
+		case "first":
+			return new QuickSorter.QuickSorter1();
+		case "last":
+			return new QuickSorter.QuickSorter2();
+		case "medianOfThree":
+			return new QuickSorter.QuickSorter3();
+		case "random":
+			return new QuickSorter.QuickSorter4(new Random(42));
+		case "ninther":
+			return new QuickSorter.QuickSorter5();
+		case "dualPivot":
+			return new QuickSorter.DualPivotQuickSorter();
+		case "threeWay":
+			return new QuickSorter.ThreeWayQuickSorter();
+		case "intro":
+			return new QuickSorter.IntroQuickSorter(new QuickSorter.QuickSorter3());
+		case "parallel":
+			return new ParallelQuickSorter(new QuickSorter.QuickSorter3());
+		default:
+			throw new IllegalArgumentException("unknown pivot " + pivot);
+		}
+	}
+	
+	@Benchmark
+	public long sortAndCountComparisons() {
+		return quickSorter.sortAndCountComparisons(numbers.clone());
+	}
+}
@@ -0,0 +1,60 @@
+package com.guavabot.algo1;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * kargerMinCut.txt has 200 vertices; the scaled graph has 2,000 with a similar density.
+ * {@link RandomContraction#findMinCut(CsrGraph)} runs thousands of contractions, so each call is timed once.
+ * Parallel Karger runs O(n^2) contractions for its success probability, about 9 million at 2,000 vertices,
+ * so it uses a scaled graph of 300 vertices instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RandomContractionBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private CsrGraph graph;
+	private CsrGraph kargerGraph;
+	
+	@Setup
+	public void setUp() throws IOException {
+		graph = BenchmarkData.BUNDLED.equals(input)
+				? BinaryDataFile.loadAdjacencyList(BenchmarkData.dataFile("kargerMinCut.txt"))
+				: BenchmarkData.randomUndirectedGraph(2_000, 15);
+		kargerGraph = BenchmarkData.BUNDLED.equals(input) ? graph : BenchmarkData.randomUndirectedGraph(300, 15);
+	}
+	
+	@Benchmark
+	public int findMinCut() {
+		return new RandomContraction().findMinCut(graph);
+	}
+	
+	@Benchmark
+	public int findMinCutParallel() {
+		return new RandomContraction().findMinCutParallel(kargerGraph, 0.99, 0).getSize();
+	}
+	
+	@Benchmark
+	public int findMinCutKargerStein() {
+		return new RandomContraction(RandomContraction.Mode.KARGER_STEIN).findMinCutParallel(graph, 0.99, 0).getSize();
+	}
+}
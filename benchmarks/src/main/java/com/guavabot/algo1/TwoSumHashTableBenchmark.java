@@ -0,0 +1,67 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 2sum.txt has 1 million numbers and is not bundled, so unless it is added to data/
+ * 20,000 random numbers stand in for it. The scaled input has 100,000 numbers.
+ * Every target walks the whole set, so each call is timed once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TwoSumHashTableBenchmark {
+	
+	@Param({BenchmarkData.BUNDLED, BenchmarkData.SCALED})
+	public String input;
+	
+	private long[] values;
+	private LongOpenHashSet set;
+	
+	@Setup
+	public void setUp() throws IOException {
+		File file = BenchmarkData.dataFile("2sum.txt");
+		if (BenchmarkData.BUNDLED.equals(input) && (file.exists() || BinaryDataFile.binaryFileFor(file).exists())) {
+			values = BinaryDataFile.loadLongs(file);
+		} else {
+			int count = BenchmarkData.BUNDLED.equals(input) ? 20_000 : 100_000;
+			values = BenchmarkData.randomLongs(count, 100_000_000_000L);
+		}
+		set = new LongOpenHashSet(values.length);
+		for (long value : values) {
+			set.add(value);
+		}
+	}
+	
+	@Benchmark
+	public int computeCountTwoSums() {
+		return new TwoSumHashTable().computeCountTwoSums(set, -10_000, 10_000);
+	}
+	
+	@Benchmark
+	public int computeCountTwoSumsParallel() {
+		return new TwoSumHashTable().computeCountTwoSumsParallel(set, -10_000, 10_000);
+	}
+	
+	@Benchmark
+	public int computeCountTwoSumsSorted() {
+		return new TwoSumHashTable().computeCountTwoSumsSorted(values, -10_000, 10_000);
+	}
+}
@@ -0,0 +1,264 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores int arrays, long arrays and graphs in a compact binary format that is loaded
+ * by memory mapping the file and copying whole arrays, without parsing.
+ *
+ * Every file starts with a 32 byte header, and all values are little-endian:
+ * magic "ALG1", version, type, flags, first count (long) and second count (long).
+ * An int or long array stores its length as first count, followed by the values.
+ * A graph stores the vertex count and the edge count, followed by the {@link CsrGraph}
+ * offsets, targets and, if the weighted flag is set, weights.
+ *
+ * Running main converts the text files under data/ to .bin files next to them.
+ * The load methods read the .bin file when it is up to date and the text file otherwise.
+ */
+public class BinaryDataFile {
+
+	private static final int MAGIC = 0x31474C41; //"ALG1" in little-endian
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int FLAG_WEIGHTED = 1;
+	private static final long MAX_CHUNK = 1 << 30; //bytes mapped or written at once
+
+	private static final int TYPE_INT_ARRAY = 1;
+	private static final int TYPE_LONG_ARRAY = 2;
+	private static final int TYPE_GRAPH = 3;
+
+	public static void main(String[] args) throws IOException {
+		convertInts(new File("data/IntegerArray.txt"));
+		convertInts(new File("data/QuickSort.txt"));
+		convertInts(new File("data/Median.txt"));
+		convertLongs(new File("data/2sum.txt"));
+		File file = new File("data/SCC.txt");
+		if (file.exists()) {
+			writeGraph(binaryFileFor(file), MappedTextReader.readEdgeList(file));
+			System.out.println("converted " + file);
+		}
+		file = new File("data/kargerMinCut.txt");
+		if (file.exists()) {
+			writeGraph(binaryFileFor(file), MappedTextReader.readAdjacencyList(file));
+			System.out.println("converted " + file);
+		}
+		file = new File("data/dijkstraData.txt");
+		if (file.exists()) {
+			writeGraph(binaryFileFor(file), MappedTextReader.readWeightedAdjacencyList(file));
+			System.out.println("converted " + file);
+		}
+	}
+
+	private static void convertInts(File file) throws IOException {
+		if (file.exists()) {
+			writeInts(binaryFileFor(file), MappedTextReader.readInts(file));
+			System.out.println("converted " + file);
+		}
+	}
+
+	private static void convertLongs(File file) throws IOException {
+		if (file.exists()) {
+			writeLongs(binaryFileFor(file), MappedTextReader.readLongs(file));
+			System.out.println("converted " + file);
+		}
+	}
+
+	/**
+	 * @return File with the same name and a .bin extension
+	 */
+	public static File binaryFileFor(File textFile) {
+		String name = textFile.getName();
+		int dot = name.lastIndexOf('.');
+		String base = dot > 0 ? name.substring(0, dot) : name;
+		return new File(textFile.getParentFile(), base + ".bin");
+	}
+
+	private static boolean hasBinary(File textFile) {
+		File binaryFile = binaryFileFor(textFile);
+		return binaryFile.exists()
+				&& (!textFile.exists() || binaryFile.lastModified() >= textFile.lastModified());
+	}
+
+	public static int[] loadInts(File textFile) throws IOException {
+		return hasBinary(textFile) ? readInts(binaryFileFor(textFile)) : MappedTextReader.readInts(textFile);
+	}
+
+	public static long[] loadLongs(File textFile) throws IOException {
+		return hasBinary(textFile) ? readLongs(binaryFileFor(textFile)) : MappedTextReader.readLongs(textFile);
+	}
+
+	public static CsrGraph loadEdgeList(File textFile) throws IOException {
+		return hasBinary(textFile) ? readGraph(binaryFileFor(textFile)) : MappedTextReader.readEdgeList(textFile);
+	}
+
+	public static CsrGraph loadAdjacencyList(File textFile) throws IOException {
+		return hasBinary(textFile) ? readGraph(binaryFileFor(textFile)) : MappedTextReader.readAdjacencyList(textFile);
+	}
+
+	public static CsrGraph loadWeightedAdjacencyList(File textFile) throws IOException {
+		return hasBinary(textFile)
+				? readGraph(binaryFileFor(textFile)) : MappedTextReader.readWeightedAdjacencyList(textFile);
+	}
+
+	public static void writeInts(File file, int[] values) throws IOException {
+		try (FileChannel channel = openForWrite(file)) {
+			writeHeader(channel, TYPE_INT_ARRAY, 0, values.length, 0);
+			writeArray(channel, values);
+		}
+	}
+
+	public static void writeLongs(File file, long[] values) throws IOException {
+		try (FileChannel channel = openForWrite(file)) {
+			writeHeader(channel, TYPE_LONG_ARRAY, 0, values.length, 0);
+			ByteBuffer buffer = newBuffer((int) Math.min(MAX_CHUNK, (long) values.length * 8));
+			for (int i = 0; i < values.length; ) {
+				buffer.clear();
+				int end = (int) Math.min(values.length, i + buffer.capacity() / 8L);
+				buffer.asLongBuffer().put(values, i, end - i);
+				buffer.limit((end - i) * 8);
+				writeFully(channel, buffer);
+				i = end;
+			}
+		}
+	}
+
+	public static void writeGraph(File file, CsrGraph graph) throws IOException {
+		try (FileChannel channel = openForWrite(file)) {
+			int edgeCount = graph.getEdgeCount();
+			writeHeader(channel, TYPE_GRAPH, graph.isWeighted() ? FLAG_WEIGHTED : 0,
+					graph.getVertexCount(), edgeCount);
+			writeArray(channel, graph.getOffsets(), graph.getVertexCount() + 1);
+			writeArray(channel, graph.getTargets(), edgeCount);
+			if (graph.isWeighted()) {
+				writeArray(channel, graph.getWeights(), edgeCount);
+			}
+		}
+	}
+
+	public static int[] readInts(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, TYPE_INT_ARRAY);
+			return readIntArray(channel, HEADER_SIZE, toLength(header.getLong(16)));
+		}
+	}
+
+	public static long[] readLongs(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, TYPE_LONG_ARRAY);
+			long[] values = new long[toLength(header.getLong(16))];
+			long position = HEADER_SIZE;
+			for (int i = 0; i < values.length; ) {
+				int count = (int) Math.min(values.length - i, MAX_CHUNK / 8);
+				map(channel, position, count * 8L).asLongBuffer().get(values, i, count);
+				i += count;
+				position += count * 8L;
+			}
+			return values;
+		}
+	}
+
+	public static CsrGraph readGraph(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, TYPE_GRAPH);
+			boolean weighted = (header.getInt(12) & FLAG_WEIGHTED) != 0;
+			int vertexCount = toLength(header.getLong(16));
+			int edgeCount = toLength(header.getLong(24));
+			long position = HEADER_SIZE;
+			int[] offsets = readIntArray(channel, position, vertexCount + 1);
+			position += (vertexCount + 1) * 4L;
+			int[] targets = readIntArray(channel, position, edgeCount);
+			position += edgeCount * 4L;
+			int[] weights = weighted ? readIntArray(channel, position, edgeCount) : null;
+			return new CsrGraph(offsets, targets, weights);
+		}
+	}
+
+	private static FileChannel openForWrite(File file) throws IOException {
+		return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	private static ByteBuffer newBuffer(int capacity) {
+		return ByteBuffer.allocateDirect(Math.max(capacity, 8)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void writeHeader(FileChannel channel, int type, int flags, long count1, long count2)
+			throws IOException {
+		ByteBuffer header = newBuffer(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(type).putInt(flags).putLong(count1).putLong(count2);
+		header.flip();
+		writeFully(channel, header);
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel, int expectedType) throws IOException {
+		if (channel.size() < HEADER_SIZE) {
+			throw new IOException("file too short for a header");
+		}
+		ByteBuffer header = map(channel, 0, HEADER_SIZE);
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("not a binary data file");
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("unsupported version " + header.getInt(4));
+		}
+		if (header.getInt(8) != expectedType) {
+			throw new IOException("expected type " + expectedType + " but found " + header.getInt(8));
+		}
+		return header;
+	}
+
+	private static void writeArray(FileChannel channel, int[] values) throws IOException {
+		writeArray(channel, values, values.length);
+	}
+
+	private static void writeArray(FileChannel channel, int[] values, int length) throws IOException {
+		ByteBuffer buffer = newBuffer((int) Math.min(MAX_CHUNK, (long) length * 4));
+		for (int i = 0; i < length; ) {
+			buffer.clear();
+			int end = (int) Math.min(length, i + buffer.capacity() / 4L);
+			buffer.asIntBuffer().put(values, i, end - i);
+			buffer.limit((end - i) * 4);
+			writeFully(channel, buffer);
+			i = end;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static int[] readIntArray(FileChannel channel, long position, int length) throws IOException {
+		int[] values = new int[length];
+		for (int i = 0; i < length; ) {
+			int count = (int) Math.min(length - i, MAX_CHUNK / 4);
+			map(channel, position, count * 4L).asIntBuffer().get(values, i, count);
+			i += count;
+			position += count * 4L;
+		}
+		return values;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (position + size > channel.size()) {
+			throw new IOException("file is truncated");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	private static int toLength(long count) throws IOException {
+		if (count < 0 || count > Integer.MAX_VALUE - 1) {
+			throw new IOException("invalid length " + count);
+		}
+		return (int) count;
+	}
+}
@@ -0,0 +1,209 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets many threads add numbers to a {@link HeapMedianMantainer} at the same time.
+ *
+ * Producers append to one of several striped buffers, picked by thread, so they rarely wait
+ * for each other. Every stripe has two buffers: when one is full it is swapped with the other and
+ * drained into the heaps with {@link HeapMedianMantainer#addAll(int[], int, int)}, which rebalances
+ * once per batch, while producers keep filling the other one. A stripe is only swapped again once
+ * its last drain has finished, which its drain lock guarantees.
+ * After each drain the median is published in a volatile field, so reading it never blocks:
+ * {@link #getMedian()} is the median of the numbers drained so far, and {@link #flush()}
+ * drains every buffer first to get the exact one.
+ */
+public class ConcurrentMedianMantainer {
+	
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+	
+	private final HeapMedianMantainer medianer = new HeapMedianMantainer();
+	private final Stripe[] stripes;
+	private final int bufferSize;
+	private volatile boolean hasMedian;
+	private volatile int median;
+	private volatile int drainedCount;
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final int[] numbers = MappedTextReader.readInts(new File("data/Median.txt"));
+		final ConcurrentMedianMantainer medianer = new ConcurrentMedianMantainer();
+		int producers = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		final int batch = (numbers.length + producers - 1) / producers;
+		for (int p = 0; p < producers; p++) {
+			final int from = Math.min(numbers.length, p * batch);
+			final int to = Math.min(numbers.length, from + batch);
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = from; i < to; i += 100) {
+						medianer.addAll(numbers, i, Math.min(to, i + 100));
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		System.out.println("Median of all numbers: " + medianer.flush());
+		//prints 5000, the same as the last median of HeapMedianMantainer
+	}
+	
+	public ConcurrentMedianMantainer() {
+		this(Runtime.getRuntime().availableProcessors() * 2, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * @param stripeCount Number of buffers producers are spread over; rounded up to a power of two
+	 * @param bufferSize Numbers each buffer holds before it is drained into the heaps
+	 */
+	public ConcurrentMedianMantainer(int stripeCount, int bufferSize) {
+		if (stripeCount < 1 || bufferSize < 1) {
+			throw new IllegalArgumentException("stripe count and buffer size must be positive");
+		}
+		int count = Integer.highestOneBit(stripeCount);
+		if (count < stripeCount) {
+			count <<= 1;
+		}
+		stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe(bufferSize);
+		}
+		this.bufferSize = bufferSize;
+	}
+	
+	public void add(int number) {
+		Stripe stripe = stripeForCurrentThread();
+		int[] full;
+		synchronized (stripe) {
+			stripe.buffer[stripe.size++] = number;
+			if (stripe.size < bufferSize) {
+				return;
+			}
+			full = stripe.swap();
+		}
+		drain(stripe, full, full.length);
+	}
+	
+	public void addAll(int[] numbers) {
+		addAll(numbers, 0, numbers.length);
+	}
+	
+	/**
+	 * Adds numbers[from, to), filling the buffer of the current thread and draining it as it gets full.
+	 */
+	public void addAll(int[] numbers, int from, int to) {
+		Stripe stripe = stripeForCurrentThread();
+		while (from < to) {
+			int[] full = null;
+			synchronized (stripe) {
+				int count = Math.min(to - from, bufferSize - stripe.size);
+				System.arraycopy(numbers, from, stripe.buffer, stripe.size, count);
+				stripe.size += count;
+				from += count;
+				if (stripe.size == bufferSize) {
+					full = stripe.swap();
+				}
+			}
+			if (full != null) {
+				drain(stripe, full, full.length);
+			}
+		}
+	}
+	
+	/**
+	 * Does not block, and does not include the numbers still in the buffers.
+	 * @return Median of the numbers drained into the heaps so far
+	 * @throws IllegalStateException If no numbers were drained
+	 */
+	public int getMedian() {
+		if (!hasMedian) {
+			throw new IllegalStateException("no numbers drained");
+		}
+		return median;
+	}
+	
+	/**
+	 * @return Numbers drained into the heaps so far
+	 */
+	public int getDrainedCount() {
+		return drainedCount;
+	}
+	
+	/**
+	 * Drains all the buffers into the heaps, waiting for the drains other threads started.
+	 * @return Median of all the numbers added by calls that returned before this one,
+	 * 			and of any added by other threads meanwhile
+	 * @throws IllegalStateException If no numbers were added
+	 */
+	public int flush() {
+		for (Stripe stripe : stripes) {
+			int[] buffer;
+			int size;
+			synchronized (stripe) {
+				size = stripe.size;
+				buffer = stripe.swap();
+			}
+			drain(stripe, buffer, size);
+		}
+		return getMedian();
+	}
+	
+	private Stripe stripeForCurrentThread() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return stripes[(hash >>> 16) & (stripes.length - 1)];
+	}
+	
+	/**
+	 * Drains a buffer swapped out of the stripe and releases the drain lock taken by the swap.
+	 */
+	private void drain(Stripe stripe, int[] buffer, int size) {
+		try {
+			if (size == 0) {
+				return;
+			}
+			synchronized (medianer) {
+				medianer.addAll(buffer, 0, size);
+				median = medianer.getMedian();
+				drainedCount = medianer.size();
+				hasMedian = true;
+			}
+		} finally {
+			stripe.drainLock.unlock();
+		}
+	}
+	
+	private static class Stripe {
+		final Lock drainLock = new ReentrantLock(); //held from a swap until the buffer is drained
+		int[] buffer;
+		int[] spare; //the buffer swapped out last, free once the drain lock is
+		int size;
+		
+		Stripe(int bufferSize) {
+			buffer = new int[bufferSize];
+			spare = new int[bufferSize];
+		}
+		
+		/**
+		 * Exchanges the buffer with the spare one, so the full one can be drained without holding the stripe.
+		 * Must be called holding the stripe; waits for the drain of the previous swap and takes the drain lock,
+		 * which the caller releases after draining. Producers of other stripes are not blocked meanwhile.
+		 * @return The previous buffer
+		 */
+		int[] swap() {
+			drainLock.lock();
+			int[] full = buffer;
+			buffer = spare;
+			spare = full;
+			size = 0;
+			return full;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package com.guavabot.algo1;
+
+import java.util.Arrays;
+
+/**
+ * Directed graph in compressed sparse row form.
+ *
+ * Vertices are numbered 0 to vertexCount - 1. The edges leaving vertex v are stored at positions
+ * offsets[v] (inclusive) to offsets[v + 1] (exclusive) of the targets array, and of the weights array
+ * for weighted graphs. There are no objects per vertex or per edge, so big graphs use a fraction
+ * of the memory of an adjacency list of nodes and are traversed with sequential memory accesses.
+ */
+public class CsrGraph {
+	
+	private final int vertexCount;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights; //null for unweighted graphs
+	
+	/**
+	 * @param offsets Array of length vertexCount + 1 with the start of the edges of each vertex
+	 * @param targets Target of each edge
+	 * @param weights Weight of each edge, or null if the graph is unweighted
+	 */
+	public CsrGraph(int[] offsets, int[] targets, int[] weights) {
+		if (offsets.length == 0 || offsets[offsets.length - 1] > targets.length) {
+			throw new IllegalArgumentException("offsets do not match " + targets.length + " targets");
+		}
+		if (weights != null && weights.length < targets.length) {
+			throw new IllegalArgumentException("there are less weights than edges");
+		}
+		this.vertexCount = offsets.length - 1;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+	
+	/**
+	 * Builds a graph from a list of edges using a counting sort by source vertex.
+	 * Edges of the same source keep their relative order.
+	 *
+	 * @param edgeCount Number of edges to read from the arrays
+	 * @param weights Weights of the edges, or null if the graph is unweighted
+	 */
+	public static CsrGraph fromEdges(int vertexCount, int[] sources, int[] targets, int[] weights, int edgeCount) {
+		int[] offsets = new int[vertexCount + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			offsets[sources[i] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		
+		int[] next = Arrays.copyOf(offsets, vertexCount);
+		int[] sortedTargets = new int[edgeCount];
+		int[] sortedWeights = weights != null ? new int[edgeCount] : null;
+		for (int i = 0; i < edgeCount; i++) {
+			int pos = next[sources[i]]++;
+			sortedTargets[pos] = targets[i];
+			if (weights != null) {
+				sortedWeights[pos] = weights[i];
+			}
+		}
+		return new CsrGraph(offsets, sortedTargets, sortedWeights);
+	}
+	
+	/**
+	 * @return A new graph with all edges pointing in the opposite direction, built with a counting sort
+	 */
+	public CsrGraph reverse() {
+		int edgeCount = getEdgeCount();
+		int[] reverseOffsets = new int[vertexCount + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			reverseOffsets[targets[i] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			reverseOffsets[v + 1] += reverseOffsets[v];
+		}
+		
+		int[] next = Arrays.copyOf(reverseOffsets, vertexCount);
+		int[] reverseTargets = new int[edgeCount];
+		int[] reverseWeights = weights != null ? new int[edgeCount] : null;
+		for (int v = 0; v < vertexCount; v++) {
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				int pos = next[targets[i]]++;
+				reverseTargets[pos] = v;
+				if (weights != null) {
+					reverseWeights[pos] = weights[i];
+				}
+			}
+		}
+		return new CsrGraph(reverseOffsets, reverseTargets, reverseWeights);
+	}
+	
+	public int getVertexCount() {
+		return vertexCount;
+	}
+	
+	public int getEdgeCount() {
+		return offsets[vertexCount];
+	}
+	
+	public int getOutDegree(int vertex) {
+		return offsets[vertex + 1] - offsets[vertex];
+	}
+	
+	public boolean isWeighted() {
+		return weights != null;
+	}
+	
+	/**
+	 * Direct access to the offsets for tight loops. Must not be modified.
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+	
+	/**
+	 * Direct access to the edge targets for tight loops. Must not be modified.
+	 */
+	public int[] getTargets() {
+		return targets;
+	}
+	
+	/**
+	 * Direct access to the edge weights for tight loops. Must not be modified.
+	 * @return Weights, or null if the graph is unweighted
+	 */
+	public int[] getWeights() {
+		return weights;
+	}
+	
+	/**
+	 * Accumulates edges in primitive arrays until the graph is built.
+	 */
+	public static class Builder {
+		private int vertexCount;
+		private int edgeCount;
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private int[] weights;
+		
+		/**
+		 * Makes sure the graph has at least the given number of vertices,
+		 * even if some of them have no edges.
+		 */
+		public Builder ensureVertexCount(int count) {
+			vertexCount = Math.max(vertexCount, count);
+			return this;
+		}
+		
+		public Builder addEdge(int source, int target) {
+			if (weights != null) {
+				throw new IllegalStateException("graph is weighted");
+			}
+			add(source, target);
+			return this;
+		}
+		
+		public Builder addEdge(int source, int target, int weight) {
+			if (weights == null) {
+				if (edgeCount > 0) {
+					throw new IllegalStateException("graph is unweighted");
+				}
+				weights = new int[sources.length];
+			}
+			weights[edgeCount] = weight;
+			add(source, target);
+			return this;
+		}
+		
+		private void add(int source, int target) {
+			if (source < 0 || target < 0) {
+				throw new IllegalArgumentException("negative vertex: " + source + " -> " + target);
+			}
+			sources[edgeCount] = source;
+			targets[edgeCount] = target;
+			edgeCount++;
+			vertexCount = Math.max(vertexCount, Math.max(source, target) + 1);
+			if (edgeCount == sources.length) {
+				int newLength = sources.length * 2;
+				sources = Arrays.copyOf(sources, newLength);
+				targets = Arrays.copyOf(targets, newLength);
+				if (weights != null) {
+					weights = Arrays.copyOf(weights, newLength);
+				}
+			}
+		}
+		
+		public CsrGraph build() {
+			return fromEdges(vertexCount, sources, targets, weights, edgeCount);
+		}
+	}
+}
@@ -2,93 +2,114 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.PriorityQueue;
-import java.util.Scanner;
 
 /**
- * Applies Dijkstra's algorithm using a heap to find the shortest path from a vertex 
- * to all other vertices of a graph by adjacency list. 
- * 
- * The input file contains an adjacency list representation of an undirected weighted 
- * graph with 200 vertices labeled 1 to 200. Each row consists of the node tuples 
+ * Applies Dijkstra's algorithm using a heap to find the shortest path from a vertex
+ * to all other vertices of a graph by adjacency list.
+ *
+ * The input file contains an adjacency list representation of an undirected weighted
+ * graph with 200 vertices labeled 1 to 200. Each row consists of the node tuples
  * that are adjacent to that particular vertex along with the length of that edge.
+ * Vertex labels are stored in the graph as 0 to 199.
  */
 public class Dijkstra {
 	
 	private static final int DEFAULT_DISTANCE = 1000000;
 	
+	/**
+	 * Heap engines that can back the algorithm.
+	 */
+	public enum HeapMode {
+		/** {@code PriorityQueue} where a relaxed vertex is removed (linear scan) and added again */
+		REMOVE_AND_REINSERT,
+		/** Indexed d-ary heap keyed by vertex with O(log n) decrease-key */
+		INDEXED,
+		/** {@code PriorityQueue} where a relaxed vertex is added again and stale entries are skipped on poll */
+		LAZY_DELETION
+	}
+	
+	private final HeapMode heapMode;
+	
 	public static void main(String[] args) throws IOException {
-		Node startNode = null;
-		Map<Integer, Node> graph = new HashMap<>();
-		File file = new File("data/dijkstraData.txt");
-		Scanner scanner = new Scanner(file);
-		scanner.useDelimiter("[,\\s]");
-		while (scanner.hasNextLine()) {
-			int nodeNum = scanner.nextInt();
-			Node node = graph.get(nodeNum);
-			if (node == null) {
-				node = new Node(nodeNum);
-				graph.put(nodeNum, node);
-			}
-			
-			List<Edge> edges = node.getEdges();
-			while (scanner.hasNextInt()) {
-				int node2Num = scanner.nextInt();
-				Node node2 = graph.get(node2Num);
-				if (node2 == null) {
-					node2 = new Node(node2Num);
-					graph.put(node2Num, node2);
-				}
-				int weight = scanner.nextInt();
-				edges.add(new Edge(node2, weight));
-			}
-			
-			if (startNode == null) startNode = node;
-			scanner.nextLine();
-		}
-		scanner.close();
-		System.out.println("graph size: " + graph.size());
+		CsrGraph graph = BinaryDataFile.loadWeightedAdjacencyList(new File("data/dijkstraData.txt"));
+		int startVertex = 0; //label 1, the first vertex listed in the file
+		System.out.println("graph size: " + graph.getVertexCount());
 		
-		Dijkstra dijkstra = new Dijkstra();
-		dijkstra.findShortestPaths(startNode);
+		Dijkstra dijkstra = new Dijkstra(HeapMode.INDEXED);
+		int[] shortestPaths = dijkstra.findShortestPaths(graph, startVertex);
 		
 		//Extra: print distance to certain vertices
 		int[] requiredVertices = {7,37,59,82,99,115,133,165,188,197};
-		StringBuilder builder = new StringBuilder();
+		StringBuilder output = new StringBuilder();
 		for (int i = 0; i < requiredVertices.length; i++) {
-			builder.append(graph.get(requiredVertices[i]).getShortestPath()).append(",");
+			output.append(shortestPaths[requiredVertices[i] - 1]).append(",");
 		}
-		System.out.println(builder); //2599,2610,2947,2052,2367,2399,2029,2442,2505,3068
+		System.out.println(output); //2599,2610,2947,2052,2367,2399,2029,2442,2505,3068
+	}
+	
+	public Dijkstra() {
+		this(HeapMode.REMOVE_AND_REINSERT);
+	}
+	
+	public Dijkstra(HeapMode heapMode) {
+		this.heapMode = heapMode;
 	}
 	
 	/**
 	 * Finds the shortest path using a heap.
-	 * 
-	 * @param graph List of nodes with a map of connected edges to their weight.
-	 * 				First element corresponds to node 1.
-	 * @param startNode 
-	 * @return Array of shortest distances from the startNode. Item 0 corresponds to node 1.
+	 *
+	 * @param graph Weighted graph
+	 * @param startVertex
+	 * @return Array of shortest distances from the startVertex.
+	 * 				Unreachable vertices have a distance of {@value #DEFAULT_DISTANCE}.
 	 */
-	public void findShortestPaths(Node startNode) {
-		startNode.setShortestPath(0);
-		PriorityQueue<Node> heap = new PriorityQueue<Node>();
-		heap.add(startNode);
+	public int[] findShortestPaths(CsrGraph graph, int startVertex) {
+		if (!graph.isWeighted()) {
+			throw new IllegalArgumentException("Dijkstra needs a weighted graph");
+		}
+		int[] shortestPaths = new int[graph.getVertexCount()];
+		Arrays.fill(shortestPaths, DEFAULT_DISTANCE);
+		shortestPaths[startVertex] = 0;
+		switch (heapMode) {
+		case INDEXED:
+			findShortestPathsIndexed(graph, startVertex, shortestPaths);
+			break;
+		case LAZY_DELETION:
+			findShortestPathsLazy(graph, startVertex, shortestPaths);
+			break;
+		default:
+			findShortestPathsReinserting(graph, startVertex, shortestPaths);
+			break;
+		}
+		return shortestPaths;
+	}
+	
+	private void findShortestPathsReinserting(CsrGraph graph, int startVertex, final int[] shortestPaths) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] weights = graph.getWeights();
+		boolean[] explored = new boolean[graph.getVertexCount()];
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(shortestPaths[o1], shortestPaths[o2]);
+			}
+		});
+		heap.add(startVertex);
 		
 		while (!heap.isEmpty()) {
-			Node node = heap.poll();
-			node.setExplored();
-			for (Edge edge : node.getEdges()) {
-				Node other = edge.getNode();
-				if (!other.isExplored()) {
-					int newDistance = node.getShortestPath() + edge.getWeight();
-					int currentDistance = other.getShortestPath();
-					if (newDistance < currentDistance) {
-						other.setShortestPath(newDistance);
+			int vertex = heap.poll();
+			explored[vertex] = true;
+			for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+				int other = targets[i];
+				if (!explored[other]) {
+					int newDistance = shortestPaths[vertex] + weights[i];
+					if (newDistance < shortestPaths[other]) {
 						heap.remove(other);
+						shortestPaths[other] = newDistance;
 						heap.add(other);
 					}
 				}
@@ -96,96 +117,75 @@ public class Dijkstra {
 		}
 	}
 	
-	private static class Node implements Comparable<Node> {
-		private int number;
-		private List<Edge> edges;
-		private boolean explored;
-		private int shortestPath = DEFAULT_DISTANCE;
-		
-		public Node(int number) {
-			this.number = number;
-		}
+	private void findShortestPathsIndexed(CsrGraph graph, int startVertex, int[] shortestPaths) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] weights = graph.getWeights();
+		boolean[] explored = new boolean[graph.getVertexCount()];
+		IndexedMinHeap heap = new IndexedMinHeap(graph.getVertexCount());
+		heap.insert(startVertex, 0);
 		
-		public List<Edge> getEdges() {
-			if (edges == null) {
-				edges = new ArrayList<>();
+		while (!heap.isEmpty()) {
+			int vertex = heap.poll();
+			explored[vertex] = true;
+			for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+				int other = targets[i];
+				if (!explored[other]) {
+					int newDistance = shortestPaths[vertex] + weights[i];
+					if (newDistance < shortestPaths[other]) {
+						shortestPaths[other] = newDistance;
+						if (heap.contains(other)) {
+							heap.decreaseKey(other, newDistance);
+						} else {
+							heap.insert(other, newDistance);
+						}
+					}
+				}
 			}
-			return edges;
-		}
-		
-		public boolean isExplored() {
-			return explored;
-		}
-		
-		public void setExplored() {
-			explored = true;
 		}
+	}
+	
+	private void findShortestPathsLazy(CsrGraph graph, int startVertex, int[] shortestPaths) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] weights = graph.getWeights();
+		boolean[] explored = new boolean[graph.getVertexCount()];
+		PriorityQueue<HeapEntry> heap = new PriorityQueue<HeapEntry>();
+		heap.add(new HeapEntry(startVertex, 0));
 		
-		public int getShortestPath() {
-			return shortestPath;
+		while (!heap.isEmpty()) {
+			HeapEntry entry = heap.poll();
+			int vertex = entry.vertex;
+			if (explored[vertex] || entry.distance > shortestPaths[vertex]) {
+				continue; //stale entry; the vertex was already reached through a shorter path
+			}
+			explored[vertex] = true;
+			for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+				int other = targets[i];
+				if (!explored[other]) {
+					int newDistance = shortestPaths[vertex] + weights[i];
+					if (newDistance < shortestPaths[other]) {
+						shortestPaths[other] = newDistance;
+						heap.add(new HeapEntry(other, newDistance));
+					}
+				}
+			}
 		}
+	}
+	
+	private static class HeapEntry implements Comparable<HeapEntry> {
+		final int vertex;
+		final int distance;
 		
-		public void setShortestPath(int shortestPath) {
-			this.shortestPath = shortestPath;
+		HeapEntry(int vertex, int distance) {
+			this.vertex = vertex;
+			this.distance = distance;
 		}
 		
 		@Override
-		public int compareTo(Node o) {
-			return Integer.compare(this.shortestPath, o.shortestPath);
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((edges == null) ? 0 : edges.hashCode());
-			result = prime * result + (explored ? 1231 : 1237);
-			result = prime * result + number;
-			result = prime * result + shortestPath;
-			return result;
+		public int compareTo(HeapEntry o) {
+			return Integer.compare(this.distance, o.distance);
 		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Node other = (Node) obj;
-			if (edges == null) {
-				if (other.edges != null)
-					return false;
-			} else if (!edges.equals(other.edges))
-				return false;
-			if (explored != other.explored)
-				return false;
-			if (number != other.number)
-				return false;
-			if (shortestPath != other.shortestPath)
-				return false;
-			return true;
-		}
-		
 	}
-	
-	private static class Edge {
-		Node node;
-		int weight;
-		
-		Edge(Node node, int weight) {
-			this.node = node;
-			this.weight = weight;
-		}
-
-		public Node getNode() {
-			return node;
-		}
 
-		public int getWeight() {
-			return weight;
-		}
-	}
-	
-}
\ No newline at end of file
+}
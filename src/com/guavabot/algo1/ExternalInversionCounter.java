@@ -0,0 +1,262 @@
+package com.guavabot.algo1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the inversions of a file of numbers that does not fit in memory.
+ *
+ * The file is read in chunks; the inversions inside each chunk are counted with {@link InversionCounter}
+ * and the sorted chunk is spilled to a temporary file. Then groups of consecutive sorted runs are merged:
+ * every number taken from a run is an inversion with each number still left in the runs before it,
+ * which are kept in a Fenwick tree indexed by run. Each merged group is written as one run, in place
+ * of the group, and the passes go on until a single run is left, so at most {@value #MAX_FAN_IN}
+ * runs are read at once however big the input is.
+ *
+ * Memory is bounded by the limit given: a chunk and its merge buffer split what is left after the
+ * write buffer, and the merge fan-in is the number of read buffers, plus one to write, that fit in it.
+ */
+public class ExternalInversionCounter {
+	
+	private static final int DEFAULT_MEMORY_LIMIT = 32 * 1024 * 1024;
+	private static final int MAX_FAN_IN = 64;
+	private static final int MAX_IO_BUFFER_SIZE = 64 * 1024;
+	private static final int MIN_IO_BUFFER_SIZE = 4 * 1024;
+	
+	private final int chunkSize; //numbers sorted in memory at once
+	private final int fanIn; //runs merged at once
+	private final int ioBufferSize;
+	private final File tempDirectory;
+	
+	public static void main(String[] args) throws IOException {
+		//little memory so the example is spilled in several runs, merged in a few passes
+		ExternalInversionCounter counter = new ExternalInversionCounter(10_000, null);
+		long inversions = counter.countInversions(new File("data/IntegerArray.txt"));
+		System.out.println(inversions + " inversions");
+		//2407905288 inversions
+	}
+	
+	public ExternalInversionCounter() {
+		this(DEFAULT_MEMORY_LIMIT, null);
+	}
+	
+	/**
+	 * @param memoryLimit Numbers that fit in the memory used for sorting and merging,
+	 * 			at least a few I/O buffers of {@value #MIN_IO_BUFFER_SIZE} bytes
+	 * @param tempDirectory Where sorted runs are spilled, or null for the default temporary directory
+	 */
+	public ExternalInversionCounter(int memoryLimit, File tempDirectory) {
+		if (memoryLimit < 1) {
+			throw new IllegalArgumentException("memory limit must be positive: " + memoryLimit);
+		}
+		long memoryBytes = 4L * memoryLimit;
+		fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBytes / MIN_IO_BUFFER_SIZE - 1));
+		ioBufferSize = (int) Math.max(MIN_IO_BUFFER_SIZE, Math.min(MAX_IO_BUFFER_SIZE, memoryBytes / (fanIn + 1)));
+		//the chunk and its merge buffer share what the spill's write buffer leaves
+		chunkSize = Math.max(1, (memoryLimit - ioBufferSize / 4) / 2);
+		this.tempDirectory = tempDirectory;
+	}
+	
+	/**
+	 * Counts inversions the same way as {@link InversionCounter#sortAndCountInversions(int[])}.
+	 * @param file Text file with the numbers, as read by {@link MappedTextReader}
+	 * @return Number of inversions
+	 */
+	public long countInversions(File file) throws IOException {
+		List<File> files = new ArrayList<File>(); //every temporary file, deleted at the end
+		try {
+			List<File> runs = new ArrayList<File>();
+			long count = spillSortedRuns(file, runs, files);
+			return count + countSplitInversions(runs, files);
+		} finally {
+			for (File run : files) {
+				run.delete();
+			}
+		}
+	}
+	
+	private long spillSortedRuns(File file, List<File> runs, List<File> files) throws IOException {
+		int[] chunk = new int[chunkSize];
+		int[] buffer = new int[chunkSize];
+		long count = 0;
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			while (reader.hasNext()) {
+				int length = 0;
+				while (length < chunkSize && reader.hasNext()) {
+					chunk[length++] = reader.nextInt();
+				}
+				count += InversionCounter.sortAndCountInversionsInPlace(chunk, buffer, 0, length);
+				
+				File run = newRunFile(files);
+				runs.add(run);
+				try (DataOutputStream out = openOutput(run)) {
+					out.writeLong(length);
+					for (int i = 0; i < length; i++) {
+						out.writeInt(chunk[i]);
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Merges groups of {@code fanIn} consecutive runs until one is left. Merging keeps the runs in
+	 * the order of the input, so the inversions between runs of different groups are counted by a later pass.
+	 */
+	private long countSplitInversions(List<File> runs, List<File> files) throws IOException {
+		long splitCount = 0;
+		while (runs.size() > fanIn) {
+			List<File> merged = new ArrayList<File>();
+			for (int from = 0; from < runs.size(); from += fanIn) {
+				List<File> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+				File output = newRunFile(files);
+				splitCount += mergeAndCountSplitInversions(group, output);
+				for (File run : group) {
+					run.delete(); //frees the disk as the pass goes
+				}
+				merged.add(output);
+			}
+			runs = merged;
+		}
+		//the last merge only counts
+		return runs.size() > 1 ? splitCount + mergeAndCountSplitInversions(runs, null) : splitCount;
+	}
+	
+	/**
+	 * k-way merge of the runs. When two runs have the same number, the later run goes first,
+	 * because equal numbers are counted as inversions.
+	 * @param output Where the merged run is written, or null if it is not needed
+	 */
+	private long mergeAndCountSplitInversions(List<File> runs, File output) throws IOException {
+		int runCount = runs.size();
+		DataInputStream[] inputs = new DataInputStream[runCount];
+		DataOutputStream out = null;
+		long[] fenwick = new long[runCount + 1]; //numbers left in each run
+		long[] remaining = new long[runCount];
+		int[] heads = new int[runCount];
+		int[] heap = new int[runCount];
+		int heapSize = 0;
+		long splitCount = 0;
+		try {
+			long total = 0;
+			for (int run = 0; run < runCount; run++) {
+				inputs[run] = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(runs.get(run)), ioBufferSize));
+				remaining[run] = inputs[run].readLong();
+				total += remaining[run];
+				addToFenwick(fenwick, run, remaining[run]);
+				if (remaining[run] > 0) {
+					heads[run] = inputs[run].readInt();
+					heap[heapSize++] = run;
+					siftUp(heap, heapSize - 1, heads);
+				}
+			}
+			if (output != null) {
+				out = openOutput(output);
+				out.writeLong(total);
+			}
+			
+			while (heapSize > 0) {
+				int run = heap[0];
+				if (out != null) {
+					out.writeInt(heads[run]);
+				}
+				//numbers still in earlier runs are bigger than or equal to this one
+				addToFenwick(fenwick, run, -1);
+				remaining[run]--;
+				splitCount += prefixSum(fenwick, run);
+				if (remaining[run] > 0) {
+					heads[run] = inputs[run].readInt();
+				} else {
+					heap[0] = heap[--heapSize];
+				}
+				if (heapSize > 0) {
+					siftDown(heap, 0, heapSize, heads);
+				}
+			}
+		} finally {
+			for (DataInputStream input : inputs) {
+				if (input != null) {
+					input.close();
+				}
+			}
+			if (out != null) {
+				out.close();
+			}
+		}
+		return splitCount;
+	}
+	
+	private File newRunFile(List<File> files) throws IOException {
+		File run = File.createTempFile("inversions", ".run", tempDirectory);
+		files.add(run);
+		return run;
+	}
+	
+	private DataOutputStream openOutput(File run) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), ioBufferSize));
+	}
+	
+	/**
+	 * Run a goes before run b if its number is smaller, or equal and a is a later run.
+	 */
+	private static boolean before(int a, int b, int[] heads) {
+		return heads[a] < heads[b] || heads[a] == heads[b] && a > b;
+	}
+	
+	private static void siftUp(int[] heap, int pos, int[] heads) {
+		int run = heap[pos];
+		while (pos > 0) {
+			int parentPos = (pos - 1) / 2;
+			if (!before(run, heap[parentPos], heads)) break;
+			heap[pos] = heap[parentPos];
+			pos = parentPos;
+		}
+		heap[pos] = run;
+	}
+	
+	private static void siftDown(int[] heap, int pos, int size, int[] heads) {
+		int run = heap[pos];
+		while (true) {
+			int child = pos * 2 + 1;
+			if (child >= size) break;
+			if (child + 1 < size && before(heap[child + 1], heap[child], heads)) {
+				child++;
+			}
+			if (!before(heap[child], run, heads)) break;
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = run;
+	}
+	
+	private static void addToFenwick(long[] fenwick, int run, long delta) {
+		for (int i = run + 1; i < fenwick.length; i += i & -i) {
+			fenwick[i] += delta;
+		}
+	}
+	
+	/**
+	 * @return Sum of the runs before the given one
+	 */
+	private static long prefixSum(long[] fenwick, int run) {
+		long sum = 0;
+		for (int i = run; i > 0; i -= i & -i) {
+			sum += fenwick[i];
+		}
+		return sum;
+	}
+}
@@ -2,9 +2,7 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Scanner;
+import java.util.Arrays;
 
 /**
  * Implements the "Median Maintenance" algorithm.
@@ -14,61 +12,162 @@ import java.util.Scanner;
  * (So, if k is odd, then mk is ((k+1)/2)th smallest number among x1,…,xk; if k is even, then mk is the (k/2)th smallest number among x1,…,xk.)
  */
 public class HeapMedianMantainer {
-
-	private final PriorityQueue<Integer> highHeap; 
-	private final PriorityQueue<Integer> lowHeap;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private final IntHeap highHeap; 
+	private final IntHeap lowHeap; //stores ~number, which reverses the order, so the min-heap works as a max-heap
 	
 	public static void main(String[] args) throws IOException {
 		HeapMedianMantainer medianer = new HeapMedianMantainer();
 		int medianSum = 0;
 		File file = new File("data/Median.txt");
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextInt()) {
-			int number = scanner.nextInt();
-			int median = medianer.addAndGetMedian(number);
-			medianSum += median;
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			while (reader.hasNext()) {
+				int number = reader.nextInt();
+				int median = medianer.addAndGetMedian(number);
+				medianSum += median;
+			}
 		}
-		scanner.close();
 		System.out.println("Median sum: " + medianSum);
 		//prints 46831213
 	}
 	
 	public HeapMedianMantainer() {
-		highHeap = new PriorityQueue<Integer>();
-		lowHeap = new PriorityQueue<Integer>(new Comparator<Integer>() {
-			@Override
-			public int compare(Integer o1, Integer o2) {
-				return o2.compareTo(o1);
-			}
-		});
+		highHeap = new IntHeap(INITIAL_CAPACITY);
+		lowHeap = new IntHeap(INITIAL_CAPACITY);
 	}
-
+	
 	/**
 	 * Uses two heaps to maintain the median every time a number is added
 	 * in O(log n) time. 
 	 */
 	public int addAndGetMedian(int number) {
-		Integer heapMedian = lowHeap.peek();
-		int median = heapMedian != null ? heapMedian : Integer.MAX_VALUE;
+		int median = !lowHeap.isEmpty() ? ~lowHeap.peek() : Integer.MAX_VALUE;
 		if (number > median) {
 			addToHighHeap(number);
 		} else {
 			addToLowHeap(number);
 		}
-		return lowHeap.peek();
+		return ~lowHeap.peek();
 	}
-
+	
+	/**
+	 * Adds a batch of numbers and rebalances the heaps once at the end. Every number is
+	 * compared with the median from before the batch, so the heaps stay ordered even while
+	 * they are unbalanced. The batch can be empty, so the median is read afterwards with {@link #getMedian()}.
+	 */
+	public void addAll(int[] numbers) {
+		addAll(numbers, 0, numbers.length);
+	}
+	
+	/**
+	 * Adds numbers[from, to) like {@link #addAll(int[])}.
+	 */
+	public void addAll(int[] numbers, int from, int to) {
+		int median = !lowHeap.isEmpty() ? ~lowHeap.peek() : Integer.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			int number = numbers[i];
+			if (number > median) {
+				highHeap.add(number);
+			} else {
+				lowHeap.add(~number);
+			}
+		}
+		while (highHeap.size() > lowHeap.size()) {
+			lowHeap.add(~highHeap.poll());
+		}
+		while (lowHeap.size() - highHeap.size() >= 2) {
+			highHeap.add(~lowHeap.poll());
+		}
+	}
+	
+	/**
+	 * @return Median of all the numbers added so far
+	 * @throws IllegalStateException If no numbers were added
+	 */
+	public int getMedian() {
+		if (lowHeap.isEmpty()) {
+			throw new IllegalStateException("no numbers added");
+		}
+		return ~lowHeap.peek();
+	}
+	
+	/**
+	 * @return Numbers added so far
+	 */
+	public int size() {
+		return lowHeap.size() + highHeap.size();
+	}
+	
 	private void addToHighHeap(int number) {
 		highHeap.add(number);
 		if (highHeap.size() > lowHeap.size()) {
-			lowHeap.add(highHeap.poll());
+			lowHeap.add(~highHeap.poll());
 		}
 	}
-
+	
 	private void addToLowHeap(int number) {
-		lowHeap.add(number);
+		lowHeap.add(~number);
 		if (lowHeap.size() - highHeap.size() >= 2) {
-			highHeap.add(lowHeap.poll());
+			highHeap.add(~lowHeap.poll());
+		}
+	}
+	
+	/**
+	 * Binary min-heap of primitive ints that grows by doubling, so adding and polling
+	 * do not box or allocate once it is big enough.
+	 */
+	private static class IntHeap {
+		private int[] heap;
+		private int size;
+		
+		IntHeap(int capacity) {
+			heap = new int[Math.max(capacity, 1)];
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		int peek() {
+			return heap[0];
+		}
+		
+		void add(int value) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			int pos = size++;
+			while (pos > 0) {
+				int parentPos = (pos - 1) >>> 1;
+				if (heap[parentPos] <= value) break;
+				heap[pos] = heap[parentPos];
+				pos = parentPos;
+			}
+			heap[pos] = value;
+		}
+		
+		int poll() {
+			int min = heap[0];
+			int value = heap[--size];
+			int pos = 0;
+			while (true) {
+				int child = pos * 2 + 1;
+				if (child >= size) break;
+				if (child + 1 < size && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (heap[child] >= value) break;
+				heap[pos] = heap[child];
+				pos = child;
+			}
+			heap[pos] = value;
+			return min;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.guavabot.algo1;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min-heap of integer ids keyed by an integer priority.
+ *
+ * Keeps the position of every id inside the heap, so an id can be found in constant time
+ * and its key decreased in O(log n), instead of the linear scan that {@code PriorityQueue.remove} needs.
+ * Ids must be non-negative; the heap grows as bigger ids are inserted.
+ */
+public class IndexedMinHeap {
+	
+	private static final int DEFAULT_ARITY = 4;
+	private static final int NOT_IN_HEAP = -1;
+	
+	private final int arity;
+	private int[] heap; //ids in heap order
+	private int[] keys; //key of each id
+	private int[] positions; //position of each id in the heap, or NOT_IN_HEAP
+	private int size;
+	
+	public IndexedMinHeap(int capacity) {
+		this(capacity, DEFAULT_ARITY);
+	}
+	
+	/**
+	 * @param capacity Expected number of ids; ids up to capacity - 1 can be inserted without growing
+	 * @param arity Children per node. Bigger values make the heap shallower, which speeds up
+	 * 				decreaseKey at the expense of more comparisons on poll.
+	 */
+	public IndexedMinHeap(int capacity, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("arity must be at least 2: " + arity);
+		}
+		this.arity = arity;
+		capacity = Math.max(capacity, 1);
+		heap = new int[capacity];
+		keys = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, NOT_IN_HEAP);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean contains(int id) {
+		return id < positions.length && positions[id] != NOT_IN_HEAP;
+	}
+	
+	public int getKey(int id) {
+		if (!contains(id)) {
+			throw new NoSuchElementException("id not in heap: " + id);
+		}
+		return keys[id];
+	}
+	
+	public void insert(int id, int key) {
+		if (contains(id)) {
+			throw new IllegalArgumentException("id already in heap: " + id);
+		}
+		ensureCapacity(id + 1);
+		keys[id] = key;
+		heap[size] = id;
+		positions[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+	
+	/**
+	 * Lowers the key of an id already in the heap.
+	 */
+	public void decreaseKey(int id, int key) {
+		if (key > getKey(id)) {
+			throw new IllegalArgumentException("new key " + key + " is bigger than " + keys[id]);
+		}
+		keys[id] = key;
+		siftUp(positions[id]);
+	}
+	
+	/**
+	 * Inserts the id, or changes its key if it is already in the heap.
+	 */
+	public void insertOrUpdate(int id, int key) {
+		if (!contains(id)) {
+			insert(id, key);
+		} else {
+			int oldKey = keys[id];
+			keys[id] = key;
+			if (key < oldKey) {
+				siftUp(positions[id]);
+			} else {
+				siftDown(positions[id]);
+			}
+		}
+	}
+	
+	/**
+	 * @return Id with the minimum key, without removing it
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return heap[0];
+	}
+	
+	/**
+	 * Removes the id with the minimum key.
+	 * @return Removed id
+	 */
+	public int poll() {
+		int min = peek();
+		removeAt(0);
+		return min;
+	}
+	
+	/**
+	 * Removes an arbitrary id from the heap.
+	 */
+	public void remove(int id) {
+		if (!contains(id)) {
+			throw new NoSuchElementException("id not in heap: " + id);
+		}
+		removeAt(positions[id]);
+	}
+	
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = NOT_IN_HEAP;
+		}
+		size = 0;
+	}
+	
+	private void removeAt(int pos) {
+		int removed = heap[pos];
+		positions[removed] = NOT_IN_HEAP;
+		size--;
+		if (pos < size) {
+			int last = heap[size];
+			heap[pos] = last;
+			positions[last] = pos;
+			//the moved id can belong either above or below its new position
+			siftUp(pos);
+			siftDown(positions[last]);
+		}
+	}
+	
+	private void siftUp(int pos) {
+		int id = heap[pos];
+		int key = keys[id];
+		while (pos > 0) {
+			int parentPos = (pos - 1) / arity;
+			int parent = heap[parentPos];
+			if (keys[parent] <= key) break;
+			heap[pos] = parent;
+			positions[parent] = pos;
+			pos = parentPos;
+		}
+		heap[pos] = id;
+		positions[id] = pos;
+	}
+	
+	private void siftDown(int pos) {
+		int id = heap[pos];
+		int key = keys[id];
+		while (true) {
+			int firstChild = pos * arity + 1;
+			if (firstChild >= size) break;
+			int lastChild = Math.min(firstChild + arity, size);
+			int minPos = firstChild;
+			int minKey = keys[heap[firstChild]];
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				int childKey = keys[heap[child]];
+				if (childKey < minKey) {
+					minPos = child;
+					minKey = childKey;
+				}
+			}
+			if (minKey >= key) break;
+			int minId = heap[minPos];
+			heap[pos] = minId;
+			positions[minId] = pos;
+			pos = minPos;
+		}
+		heap[pos] = id;
+		positions[id] = pos;
+	}
+	
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > positions.length) {
+			int newCapacity = Math.max(minCapacity, positions.length * 2);
+			int oldCapacity = positions.length;
+			heap = Arrays.copyOf(heap, newCapacity);
+			keys = Arrays.copyOf(keys, newCapacity);
+			positions = Arrays.copyOf(positions, newCapacity);
+			Arrays.fill(positions, oldCapacity, newCapacity, NOT_IN_HEAP);
+		}
+	}
+}
@@ -2,27 +2,23 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Applies a divide and conquer recursive algorithm to count the inversions in an unsorted array.
  */
 public class InversionCounter {
 	
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+	
 	public static void main(String[] args) throws IOException {
-		List<Integer> integers = new ArrayList<Integer>();
-		File file = new File("data/IntegerArray.txt");
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextInt()) {
-			integers.add(scanner.nextInt());
-		}
-		scanner.close();
+		int[] integers = BinaryDataFile.loadInts(new File("data/IntegerArray.txt"));
 		
 		InversionCounter counter = new InversionCounter();
-		long inversions = counter.sortAndCountInversions(Utils.listToIntArray(integers));
+		long inversions = counter.sortAndCountInversionsInPlace(integers);
 		System.out.println(inversions + " inversions");
 		//2407905288 inversions
 	}
@@ -70,4 +66,234 @@ public class InversionCounter {
 		return splitCount;
 	}
 
+	/**
+	 * Same count as {@link #sortAndCountInversions(int[])} without allocating at every level.
+	 * Runs of {@value #INSERTION_SORT_THRESHOLD} are sorted with insertion sort, counting
+	 * one inversion per shift, and then merged bottom-up alternating between the input
+	 * and a single scratch array.
+	 * @param input	Unsorted array; it is sorted on return
+	 * @return	Number of inversions
+	 */
+	public long sortAndCountInversionsInPlace(int[] input) {
+		return sortAndCountInversionsInPlace(input, new int[input.length]);
+	}
+	
+	/**
+	 * @param buffer Scratch array at least as long as the input, so it can be reused between calls
+	 */
+	public long sortAndCountInversionsInPlace(int[] input, int[] buffer) {
+		int length = input.length;
+		if (buffer.length < length) {
+			throw new IllegalArgumentException("buffer is shorter than the input");
+		}
+		return sortAndCountInversionsInPlace(input, buffer, 0, length);
+	}
+	
+	/**
+	 * Sorts and counts the range [from, to) of the input, using the same range of the buffer.
+	 */
+	static long sortAndCountInversionsInPlace(int[] input, int[] buffer, int from, int to) {
+		long count = 0;
+		for (int start = from; start < to; start += INSERTION_SORT_THRESHOLD) {
+			count += insertionSortAndCountInversions(input, start, Math.min(start + INSERTION_SORT_THRESHOLD, to));
+		}
+		
+		int[] source = input;
+		int[] target = buffer;
+		for (int width = INSERTION_SORT_THRESHOLD; width < to - from; width *= 2) {
+			for (int start = from; start < to; start += 2 * width) {
+				int middle = Math.min(start + width, to);
+				int end = Math.min(start + 2 * width, to);
+				count += mergeAndCountSplitInversions(source, start, middle, end, target);
+			}
+			int[] temp = source;
+			source = target;
+			target = temp;
+		}
+		if (source != input) {
+			System.arraycopy(source, from, input, from, to - from);
+		}
+		return count;
+	}
+	
+	/**
+	 * Same count as {@link #sortAndCountInversions(int[])} using the common fork-join pool.
+	 * @param input	Unsorted array; it is sorted on return
+	 * @return	Number of inversions
+	 */
+	public long sortAndCountInversionsParallel(int[] input) {
+		return sortAndCountInversionsParallel(input, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+	}
+	
+	/**
+	 * Splits the Merge-Sort recursion into fork-join tasks. Ranges up to the threshold are counted
+	 * with {@link #sortAndCountInversionsInPlace(int[], int[])}. Bigger merges are split too: the
+	 * output is cut in two halves and binary search finds how many elements of each sorted part
+	 * go in the first half, so both halves are merged and counted independently.
+	 * @param threshold Size below which ranges are sorted and merged sequentially
+	 * @return	Number of inversions
+	 */
+	public long sortAndCountInversionsParallel(int[] input, ForkJoinPool pool, int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("threshold must be positive: " + threshold);
+		}
+		int[] buffer = new int[input.length];
+		return pool.invoke(new SortTask(input, buffer, 0, input.length, false, threshold));
+	}
+	
+	/**
+	 * Sorts a range of the input, leaving the result either in the input or in the same range
+	 * of the buffer. Each level merges from the array its children sorted into, so no copies
+	 * are needed between levels.
+	 */
+	private static class SortTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] input;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		private final boolean intoBuffer;
+		private final int threshold;
+		
+		SortTask(int[] input, int[] buffer, int from, int to, boolean intoBuffer, int threshold) {
+			this.input = input;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.intoBuffer = intoBuffer;
+			this.threshold = threshold;
+		}
+		
+		@Override
+		protected Long compute() {
+			if (to - from <= threshold) {
+				long count = sortAndCountInversionsInPlace(input, buffer, from, to);
+				if (intoBuffer) {
+					System.arraycopy(input, from, buffer, from, to - from);
+				}
+				return count;
+			}
+			int middle = (from + to) >>> 1;
+			SortTask left = new SortTask(input, buffer, from, middle, !intoBuffer, threshold);
+			left.fork();
+			long count = new SortTask(input, buffer, middle, to, !intoBuffer, threshold).compute();
+			count += left.join();
+			
+			int[] source = intoBuffer ? input : buffer;
+			int[] output = intoBuffer ? buffer : input;
+			return count + new MergeTask(source, from, middle, middle, middle, to, output, from, threshold).compute();
+		}
+	}
+	
+	/**
+	 * Merges source[i, iEnd) with source[j, jEnd) into the output starting at position k.
+	 * Every element taken from the right part is an inversion with all the left elements
+	 * not merged yet, up to leftEnd, even those merged by other tasks.
+	 */
+	private static class MergeTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] source;
+		private final int i;
+		private final int iEnd;
+		private final int leftEnd;
+		private final int j;
+		private final int jEnd;
+		private final int[] output;
+		private final int k;
+		private final int threshold;
+		
+		MergeTask(int[] source, int i, int iEnd, int leftEnd, int j, int jEnd, int[] output, int k, int threshold) {
+			this.source = source;
+			this.i = i;
+			this.iEnd = iEnd;
+			this.leftEnd = leftEnd;
+			this.j = j;
+			this.jEnd = jEnd;
+			this.output = output;
+			this.k = k;
+			this.threshold = threshold;
+		}
+		
+		@Override
+		protected Long compute() {
+			int leftLength = iEnd - i;
+			int rightLength = jEnd - j;
+			if (leftLength + rightLength <= threshold) {
+				return mergeAndCountSplitInversions(source, i, iEnd, leftEnd, j, jEnd, output, k);
+			}
+			
+			//Find how many left elements go in the first half of the output
+			int half = (leftLength + rightLength) / 2;
+			int low = Math.max(0, half - rightLength);
+			int high = Math.min(half, leftLength);
+			while (low < high) {
+				int leftTaken = (low + high) >>> 1;
+				int rightTaken = half - leftTaken;
+				if (rightTaken > 0 && source[j + rightTaken - 1] > source[i + leftTaken]) {
+					low = leftTaken + 1; //the next left element goes before the last right one
+				} else {
+					high = leftTaken;
+				}
+			}
+			int leftSplit = i + low;
+			int rightSplit = j + half - low;
+			
+			MergeTask first = new MergeTask(source, i, leftSplit, leftEnd, j, rightSplit, output, k, threshold);
+			first.fork();
+			long count = new MergeTask(source, leftSplit, iEnd, leftEnd, rightSplit, jEnd, output, k + half, threshold)
+					.compute();
+			return count + first.join();
+		}
+	}
+	
+	/**
+	 * Each shift moves an element past a smaller or equal one that comes after it, 
+	 * which is what the merge counts as an inversion.
+	 */
+	private static long insertionSortAndCountInversions(int[] array, int from, int to) {
+		long count = 0;
+		for (int i = from + 1; i < to; i++) {
+			int value = array[i];
+			int j = i;
+			while (j > from && array[j - 1] >= value) {
+				array[j] = array[j - 1];
+				j--;
+			}
+			array[j] = value;
+			count += i - j;
+		}
+		return count;
+	}
+	
+	/**
+	 * Merges the sorted ranges [from, middle) and [middle, to) of the source into the same
+	 * range of the output, counting the split inversions like {@link #mergeAndCountSplitInversions(int[], int[], int[])}.
+	 */
+	private static long mergeAndCountSplitInversions(int[] source, int from, int middle, int to, int[] output) {
+		return mergeAndCountSplitInversions(source, from, middle, middle, middle, to, output, from);
+	}
+	
+	/**
+	 * Merges a piece of two sorted ranges: source[i, iEnd) of a left part that ends at leftEnd
+	 * and source[j, jEnd) of the right part, writing to the output from position k.
+	 */
+	private static long mergeAndCountSplitInversions(int[] source, int i, int iEnd, int leftEnd,
+			int j, int jEnd, int[] output, int k) {
+		long splitCount = 0;
+		while (i < iEnd || j < jEnd) {
+			if (j >= jEnd || i < iEnd && source[i] < source[j]) {
+				output[k++] = source[i];
+				i++;
+			} else {
+				output[k++] = source[j];
+				j++;
+				//right is smaller than or equal to every left element not merged yet
+				splitCount += leftEnd - i;
+			}
+		}
+		return splitCount;
+	}
+
 }
@@ -2,53 +2,46 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
 
 /**
- * Uses Kosaraju's algorithm to find strongly connected components in a graph by adjacency list.  
+ * Uses Kosaraju's algorithm to find strongly connected components in a graph by adjacency list.
+ * Vertices labeled 1 to n in the input file are stored in the graph as 0 to n - 1.
+ * 
+ * A single pass path-based mode is also available, which does not need the inverted graph.
  */
 public class KosarajuSCC {
 	
-	private int sourceVertex; //the current source vertex from the outer loop of DFS
+	/**
+	 * Algorithms that can be used to find the components.
+	 */
+	public enum Mode {
+		/** Two depth first searches, the first one on the inverted graph */
+		KOSARAJU,
+		/** Pearce's path-based algorithm: one depth first search on the normal graph only */
+		PATH_BASED
+	}
+	
+	private final Mode mode;
+	
+	private int currentComponent; //component of the current source vertex from the outer loop of DFS
 	private int currentFinishingTime;
 	
+	private boolean[] explored;
+	private int[] component;
+	private int[] finishingOrder; //vertices in increasing finishing time
+	private int[] stack; //vertices of the current DFS path
+	private int[] edgeCursor; //next edge to follow from each vertex in the stack
+	
 	public static void main(String[] args) throws IOException {
-		Map<Integer, Node> graph = new HashMap<Integer, Node>();
+		CsrGraph graph = BinaryDataFile.loadEdgeList(new File("data/SCC.txt"));
+		System.out.println("graph size: " + graph.getVertexCount());
 		
-		File file = new File("data/SCC.txt");
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextInt()) {
-			int node1Num = scanner.nextInt();
-			int node2Num = scanner.nextInt();
-			
-			Node node1 = graph.get(node1Num);
-			if (node1 == null) {
-				node1 = new Node(node1Num);
-				graph.put(node1Num, node1);
-			}
-			Node node2 = graph.get(node2Num);
-			if (node2 == null) {
-				node2 = new Node(node2Num);
-				graph.put(node2Num, node2);
-			}
-			
-			List<Node> edges = node1.getEdges();
-			edges.add(node2);
-			List<Node> invertedEdges = node2.getInvertedEdges();
-			invertedEdges.add(node1);
+		KosarajuSCC kosaraju = new KosarajuSCC(Mode.PATH_BASED);
+		int[] components = kosaraju.findSCC(graph);
+		int[] largest = largestComponentSizes(components, kosaraju.getComponentCount(), 10);
+		for (int i = 0; i < largest.length; i++) {
+			System.out.println("Group " + (i + 1) + ": " + largest[i] + " nodes");
 		}
-		scanner.close();
-		System.out.println("graph size: " + graph.keySet().size());
-		
-		KosarajuSCC kosaraju = new KosarajuSCC();
-		kosaraju.findSCC(new HashSet<Node>(graph.values()));
 		/**
 		 *  Group 1: 434821 nodes
 			Group 2: 968 nodes
@@ -58,149 +51,240 @@ public class KosarajuSCC {
 		 */
 	}
 	
+	public KosarajuSCC() {
+		this(Mode.KOSARAJU);
+	}
+	
+	public KosarajuSCC(Mode mode) {
+		this.mode = mode;
+	}
+	
 	/**
-	 * Uses Kosaraju's algorithm, which is based on doing a depth first search 
-	 * first on an inverted graph (all edges pointing in opposite direction)
-	 * and then on the normal graph to find strongly connected components. 
+	 * Finds the strongly connected components with the algorithm of the selected mode.
 	 * @param graph Normal graph
-	 * @param invertedGraph Graph with all edges inverted
-	 * @param maxNode
+	 * @return Component of each vertex, numbered from 0 in the order they are found
 	 */
-	public void findSCC(Set<Node> graph) {
-		//Round One: Run DFS on the inverted graph and find the finishing times
-		currentFinishingTime = 0;
-		for (Node node : graph) {
-			if (!node.isExplored()) {
-				sourceVertex = node.getNumber();
-				depthFirstSearchInverted(node);
-			}
+	public int[] findSCC(CsrGraph graph) {
+		if (mode == Mode.PATH_BASED) {
+			return findSCCPathBased(graph);
+		} else {
+			return findSCCKosaraju(graph);
 		}
+	}
+	
+	/**
+	 * Uses Kosaraju's algorithm, which is based on doing a depth first search
+	 * first on an inverted graph (all edges pointing in opposite direction)
+	 * and then on the normal graph to find strongly connected components.
+	 * @param graph Normal graph. The inverted graph is built from it.
+	 */
+	private int[] findSCCKosaraju(CsrGraph graph) {
+		int vertexCount = graph.getVertexCount();
+		explored = new boolean[vertexCount];
+		component = new int[vertexCount];
+		finishingOrder = new int[vertexCount];
+		stack = new int[vertexCount];
+		edgeCursor = new int[vertexCount];
 		
-		//Sort nodes in reverse finishing time
-		List<Node> nodes = new ArrayList<>(graph);
-		nodes.sort(new Comparator<Node>() {
-			@Override
-			public int compare(Node o1, Node o2) {
-				return Integer.compare(o2.getFinishingTime(), o1.getFinishingTime());
+		//Round One: Run DFS on the inverted graph and record vertices as they finish
+		CsrGraph invertedGraph = graph.reverse();
+		currentFinishingTime = 0;
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			if (!explored[vertex]) {
+				depthFirstSearchInverted(invertedGraph, vertex);
 			}
-		});
+		}
+		invertedGraph = null; //not needed anymore
 		
 		//Round Two: Run DFS in order of last finishing time of round one
-		for (Node node : nodes) {
-			node.setExplored(false);
-		}
-		for (Node node : nodes) {
-			if (!node.isExplored()) {
-				sourceVertex = node.getNumber();
-				depthFirstSearchNormal(node);
+		explored = new boolean[vertexCount];
+		currentComponent = 0;
+		for (int i = vertexCount - 1; i >= 0; i--) {
+			int vertex = finishingOrder[i];
+			if (!explored[vertex]) {
+				depthFirstSearchNormal(graph, vertex);
+				currentComponent++;
 			}
 		}
+		return component;
+	}
+	
+	/**
+	 * Uses Pearce's path-based algorithm, a variant of Tarjan's algorithm that finds all
+	 * components in a single depth first search. Each vertex gets an rindex: its visit order while
+	 * it is being explored, lowered to the smallest rindex reachable from it, and replaced by a
+	 * component number counting down from n - 1 once its component is complete.
+	 * Only the rindex array is needed per vertex besides the stacks, and no inverted graph is built.
+	 * @param graph Normal graph
+	 */
+	private int[] findSCCPathBased(CsrGraph graph) {
+		int vertexCount = graph.getVertexCount();
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] rindex = new int[vertexCount];
+		boolean[] root = new boolean[vertexCount];
+		int[] pathStack = new int[vertexCount]; //vertices waiting for their component to complete
+		stack = new int[vertexCount];
+		edgeCursor = new int[vertexCount];
+		int index = 1;
+		int nextComponent = vertexCount - 1;
 		
-		//Group Strongly Connected Components by their leader
-		final Map<Integer, Integer> leaderToCount = new HashMap<Integer, Integer>();
-		for (Node node : graph) {
-			int lead = node.getLeader();
-			if (lead >= 0) {
-				Integer count = leaderToCount.get(lead);
-				if (count == null) {
-					count = 0;
+		for (int source = 0; source < vertexCount; source++) {
+			if (rindex[source] != 0) continue;
+			rindex[source] = index++;
+			root[source] = true;
+			edgeCursor[source] = offsets[source];
+			stack[0] = source;
+			int top = 1;
+			int pathTop = 0;
+			
+			while (top > 0) {
+				int vertex = stack[top - 1];
+				int edge = edgeCursor[vertex];
+				if (edge < offsets[vertex + 1]) {
+					edgeCursor[vertex] = edge + 1;
+					int other = targets[edge];
+					if (rindex[other] == 0) {
+						rindex[other] = index++;
+						root[other] = true;
+						edgeCursor[other] = offsets[other];
+						stack[top++] = other;
+					} else if (rindex[other] < rindex[vertex]) {
+						rindex[vertex] = rindex[other];
+						root[vertex] = false;
+					}
+				} else {
+					top--;
+					if (root[vertex]) {
+						//vertex is the root of a component made of the vertices above it in the path stack
+						index--;
+						while (pathTop > 0 && rindex[vertex] <= rindex[pathStack[pathTop - 1]]) {
+							int member = pathStack[--pathTop];
+							rindex[member] = nextComponent;
+							index--;
+						}
+						rindex[vertex] = nextComponent;
+						nextComponent--;
+					} else {
+						pathStack[pathTop++] = vertex;
+					}
+					if (top > 0) {
+						//the edge to this vertex is done in the parent
+						int parent = stack[top - 1];
+						if (rindex[vertex] < rindex[parent]) {
+							rindex[parent] = rindex[vertex];
+							root[parent] = false;
+						}
+					}
 				}
-				leaderToCount.put(lead, ++count);
 			}
 		}
 		
-		//Sort SCC by size
-		List<Integer> leaders = new ArrayList<Integer>(leaderToCount.keySet());
-		leaders.sort(new Comparator<Integer>() {
-			@Override
-			public int compare(Integer o1, Integer o2) {
-				int size1 = leaderToCount.get(o1);
-				int size2 = leaderToCount.get(o2);
-				return Integer.compare(size2, size1);
-			}
-		});
-		
-		int written = 0;
-		for (int lead : leaders) {
-			System.out.println("Group " + (++written) + ": " + leaderToCount.get(lead) + " nodes");
-			if (written == 10) break;
+		//Number components from 0 in the order they were completed
+		currentComponent = vertexCount - 1 - nextComponent;
+		component = rindex;
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			component[vertex] = vertexCount - 1 - rindex[vertex];
 		}
+		return component;
 	}
 	
-	private void depthFirstSearchInverted(Node node) {
-		node.setExplored(true);
-		for (Node other : node.getInvertedEdges()) {
-			if (!other.isExplored()) {
-				depthFirstSearchInverted(other);
-			}
-		}
-		currentFinishingTime++;
-		node.setFinishingTime(currentFinishingTime);
+	/**
+	 * @return Number of components found by the last call to {@link #findSCC(CsrGraph)}
+	 */
+	public int getComponentCount() {
+		return currentComponent;
 	}
 	
-	private void depthFirstSearchNormal(Node node) {
-		node.setExplored(true);
-		node.setLeader(sourceVertex);
-		for (Node other : node.getEdges()) {
-			if (!other.isExplored()) {
-				depthFirstSearchNormal(other);
+	/**
+	 * Counts the vertices of each component and selects the biggest ones.
+	 * @param components Component of each vertex, from 0 to componentCount - 1
+	 * @param k Maximum number of sizes to return
+	 * @return Sizes of the k largest components, in decreasing order; empty if k is not positive
+	 */
+	public static int[] largestComponentSizes(int[] components, int componentCount, int k) {
+		if (k <= 0) {
+			return new int[0];
+		}
+		int[] sizes = new int[componentCount];
+		for (int c : components) {
+			sizes[c]++;
+		}
+		
+		//Keep the top k sorted by insertion; k is small compared to the number of components
+		int[] largest = new int[Math.min(k, componentCount)];
+		int found = 0;
+		for (int size : sizes) {
+			if (found < largest.length) {
+				found++;
+			} else if (size <= largest[found - 1]) {
+				continue;
+			}
+			int pos = found - 1;
+			while (pos > 0 && largest[pos - 1] < size) {
+				largest[pos] = largest[pos - 1];
+				pos--;
 			}
+			largest[pos] = size;
 		}
+		return largest;
 	}
 	
-	private static class Node {
-		final int number;
-		List<Node> edges;
-		List<Node> invertedEdges;
-		boolean explored = false;
-		int leader = -1;
-		int finishingTime = -1;
-		
-		public Node(int number) {
-			this.number = number;
-		}
-
-		public int getNumber() {
-			return number;
-		}
-
-		public boolean isExplored() {
-			return explored;
-		}
-
-		public void setExplored(boolean explored) {
-			this.explored = explored;
-		}
-
-		public int getLeader() {
-			return leader;
-		}
-
-		public void setLeader(int leader) {
-			this.leader = leader;
-		}
-
-		public int getFinishingTime() {
-			return finishingTime;
-		}
-
-		public void setFinishingTime(int finishingTime) {
-			this.finishingTime = finishingTime;
-		}
-
-		public List<Node> getEdges() {
-			if (edges == null) {
-				edges = new ArrayList<Node>();
+	/**
+	 * Iterative DFS with an explicit stack, so the depth of the search is limited by heap memory
+	 * instead of the thread stack. Edges are followed in the same order as a recursive DFS would,
+	 * so the finishing order is identical.
+	 */
+	private void depthFirstSearchInverted(CsrGraph invertedGraph, int vertex) {
+		int[] offsets = invertedGraph.getOffsets();
+		int[] targets = invertedGraph.getTargets();
+		explored[vertex] = true;
+		edgeCursor[vertex] = offsets[vertex];
+		stack[0] = vertex;
+		int top = 1;
+		while (top > 0) {
+			int current = stack[top - 1];
+			int edge = edgeCursor[current];
+			if (edge < offsets[current + 1]) {
+				edgeCursor[current] = edge + 1;
+				int other = targets[edge];
+				if (!explored[other]) {
+					explored[other] = true;
+					edgeCursor[other] = offsets[other];
+					stack[top++] = other;
+				}
+			} else {
+				//all edges followed; the vertex finishes
+				top--;
+				finishingOrder[currentFinishingTime] = current;
+				currentFinishingTime++;
 			}
-			return edges;
 		}
-
-		public List<Node> getInvertedEdges() {
-			if (invertedEdges == null) {
-				invertedEdges = new ArrayList<Node>();
+	}
+	
+	private void depthFirstSearchNormal(CsrGraph graph, int vertex) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		explored[vertex] = true;
+		component[vertex] = currentComponent;
+		edgeCursor[vertex] = offsets[vertex];
+		stack[0] = vertex;
+		int top = 1;
+		while (top > 0) {
+			int current = stack[top - 1];
+			int edge = edgeCursor[current];
+			if (edge < offsets[current + 1]) {
+				edgeCursor[current] = edge + 1;
+				int other = targets[edge];
+				if (!explored[other]) {
+					explored[other] = true;
+					component[other] = currentComponent;
+					edgeCursor[other] = offsets[other];
+					stack[top++] = other;
+				}
+			} else {
+				top--;
 			}
-			return invertedEdges;
 		}
-		
 	}
 }
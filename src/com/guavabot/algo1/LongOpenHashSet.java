@@ -0,0 +1,152 @@
+package com.guavabot.algo1;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs with open addressing and linear probing.
+ *
+ * Values are stored straight in a long array with a power of two capacity, so there are no
+ * entry objects and no boxing: about 16 bytes per value at the maximum load, instead of
+ * the ~50 bytes of a {@code HashSet<Long>}. 0 marks an empty slot, so the value 0 is kept in a flag.
+ */
+public class LongOpenHashSet {
+	
+	private static final int DEFAULT_EXPECTED_SIZE = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final long EMPTY = 0;
+	
+	private long[] slots;
+	private int mask;
+	private int shift; //bits dropped from the hash so the top ones pick the slot
+	private boolean hasZero;
+	private int size; //values in slots, without the zero
+	private int resizeThreshold;
+	
+	public LongOpenHashSet() {
+		this(DEFAULT_EXPECTED_SIZE);
+	}
+	
+	/**
+	 * @param expectedSize Values that can be added without resizing
+	 */
+	public LongOpenHashSet(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expected size must not be negative: " + expectedSize);
+		}
+		allocate(capacityFor(expectedSize));
+	}
+	
+	public int size() {
+		return hasZero ? size + 1 : size;
+	}
+	
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	public boolean contains(long value) {
+		if (value == EMPTY) {
+			return hasZero;
+		}
+		long[] slots = this.slots;
+		int slot = slotFor(value);
+		while (true) {
+			long stored = slots[slot];
+			if (stored == value) return true;
+			if (stored == EMPTY) return false;
+			slot = (slot + 1) & mask;
+		}
+	}
+	
+	/**
+	 * @return Whether the value was added, false if it was already in the set
+	 */
+	public boolean add(long value) {
+		if (value == EMPTY) {
+			boolean added = !hasZero;
+			hasZero = true;
+			return added;
+		}
+		int slot = slotFor(value);
+		while (true) {
+			long stored = slots[slot];
+			if (stored == value) return false;
+			if (stored == EMPTY) break;
+			slot = (slot + 1) & mask;
+		}
+		if (slots.length == MAX_CAPACITY && size == MAX_CAPACITY - 1) {
+			//the table stops growing here, and one slot must stay empty to end the probes
+			throw new IllegalStateException("set is full: " + size() + " values");
+		}
+		slots[slot] = value;
+		if (++size > resizeThreshold && slots.length < MAX_CAPACITY) {
+			resize(slots.length * 2);
+		}
+		return true;
+	}
+	
+	public void clear() {
+		Arrays.fill(slots, EMPTY);
+		hasZero = false;
+		size = 0;
+	}
+	
+	/**
+	 * @return The values in no particular order
+	 */
+	public long[] toArray() {
+		long[] values = new long[size()];
+		int count = 0;
+		if (hasZero) {
+			values[count++] = 0;
+		}
+		for (long stored : slots) {
+			if (stored != EMPTY) {
+				values[count++] = stored;
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Fibonacci hashing: the multiplication mixes the low bits into the top ones, so sequential
+	 * or clustered values are spread over the table.
+	 */
+	private int slotFor(long value) {
+		return (int) ((value * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+	
+	private static int capacityFor(int expectedSize) {
+		long needed = (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1;
+		if (needed > MAX_CAPACITY) {
+			throw new IllegalArgumentException("too many values: " + expectedSize);
+		}
+		int capacity = 2;
+		while (capacity < needed) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+	
+	private void allocate(int capacity) {
+		slots = new long[capacity];
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+	
+	private void resize(int capacity) {
+		long[] oldSlots = slots;
+		allocate(capacity);
+		for (long stored : oldSlots) {
+			if (stored != EMPTY) {
+				int slot = slotFor(stored);
+				while (slots[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = stored;
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package com.guavabot.algo1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads ASCII numbers from a memory mapped file without regular expressions or boxing.
+ *
+ * Numbers are separated by spaces, tabs, commas or line breaks. The file is mapped in windows,
+ * so files bigger than 2GB can be read too. The static methods load the formats of the files
+ * under data/ straight into primitive arrays and graphs. Vertex labels start at 1 in the files
+ * and are stored as 0 to n - 1 in the graphs.
+ */
+public class MappedTextReader implements Closeable {
+
+	private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+	private static final int EOF = -1;
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private long windowEnd;
+	private MappedByteBuffer window;
+
+	public MappedTextReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		fileSize = channel.size();
+		windowEnd = 0;
+		mapNextWindow();
+	}
+
+	/**
+	 * @return Whether there is another number in the file
+	 */
+	public boolean hasNext() throws IOException {
+		int b = peek();
+		while (isSeparator(b) || b == '\n') {
+			skip();
+			b = peek();
+		}
+		return b != EOF;
+	}
+
+	/**
+	 * @return Whether there is another number before the end of the current line
+	 */
+	public boolean hasNextOnLine() throws IOException {
+		int b = peek();
+		while (isSeparator(b)) {
+			skip();
+			b = peek();
+		}
+		return b != EOF && b != '\n';
+	}
+
+	/**
+	 * Skips the rest of the current line, including the line break.
+	 */
+	public void nextLine() throws IOException {
+		int b;
+		do {
+			b = peek();
+			skip();
+		} while (b != '\n' && b != EOF);
+	}
+
+	public int nextInt() throws IOException {
+		long value = nextLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("not an int: " + value);
+		}
+		return (int) value;
+	}
+
+	public long nextLong() throws IOException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		boolean negative = false;
+		int b = peek();
+		if (b == '-') {
+			negative = true;
+			skip();
+			b = peek();
+		}
+		if (b < '0' || b > '9') {
+			throw new NumberFormatException("unexpected character '" + (char) b + "'");
+		}
+		//accumulate as a negative number so Long.MIN_VALUE fits
+		long value = 0;
+		while (b >= '0' && b <= '9') {
+			int digit = b - '0';
+			if (value < (Long.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException("number too big");
+			}
+			value = value * 10 - digit;
+			skip();
+			b = peek();
+		}
+		if (b != EOF && b != '\n' && !isSeparator(b)) {
+			throw new NumberFormatException("unexpected character '" + (char) b + "'");
+		}
+		if (negative) {
+			return value;
+		}
+		if (value == Long.MIN_VALUE) {
+			throw new NumberFormatException("number too big");
+		}
+		return -value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private static boolean isSeparator(int b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == ',';
+	}
+
+	private int peek() throws IOException {
+		if (!window.hasRemaining()) {
+			if (windowEnd >= fileSize) {
+				return EOF;
+			}
+			mapNextWindow();
+		}
+		return window.get(window.position());
+	}
+
+	private void skip() {
+		if (window.hasRemaining()) {
+			window.position(window.position() + 1);
+		}
+	}
+
+	private void mapNextWindow() throws IOException {
+		long start = windowEnd;
+		long size = Math.min(WINDOW_SIZE, fileSize - start);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		windowEnd = start + size;
+	}
+
+	/**
+	 * Reads a file with one number per line, or any other separation.
+	 */
+	public static int[] readInts(File file) throws IOException {
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			int[] values = new int[1024];
+			int count = 0;
+			while (reader.hasNext()) {
+				if (count == values.length) {
+					values = Arrays.copyOf(values, count * 2);
+				}
+				values[count++] = reader.nextInt();
+			}
+			return Arrays.copyOf(values, count);
+		}
+	}
+
+	/**
+	 * Reads a file with one number per line, or any other separation.
+	 */
+	public static long[] readLongs(File file) throws IOException {
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			long[] values = new long[1024];
+			int count = 0;
+			while (reader.hasNext()) {
+				if (count == values.length) {
+					values = Arrays.copyOf(values, count * 2);
+				}
+				values[count++] = reader.nextLong();
+			}
+			return Arrays.copyOf(values, count);
+		}
+	}
+
+	/**
+	 * Reads a directed graph with one "tail head" edge per line, like SCC.txt.
+	 */
+	public static CsrGraph readEdgeList(File file) throws IOException {
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			while (reader.hasNext()) {
+				int tail = reader.nextInt() - 1;
+				int head = reader.nextInt() - 1;
+				builder.addEdge(tail, head);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads an adjacency list with a vertex followed by its neighbors on each line, like kargerMinCut.txt.
+	 */
+	public static CsrGraph readAdjacencyList(File file) throws IOException {
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			while (reader.hasNext()) {
+				int vertex = reader.nextInt() - 1;
+				builder.ensureVertexCount(vertex + 1);
+				while (reader.hasNextOnLine()) {
+					builder.addEdge(vertex, reader.nextInt() - 1);
+				}
+				reader.nextLine();
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads a weighted adjacency list with a vertex followed by "neighbor,weight" tuples
+	 * on each line, like dijkstraData.txt.
+	 */
+	public static CsrGraph readWeightedAdjacencyList(File file) throws IOException {
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			while (reader.hasNext()) {
+				int vertex = reader.nextInt() - 1;
+				builder.ensureVertexCount(vertex + 1);
+				while (reader.hasNextOnLine()) {
+					int neighbor = reader.nextInt() - 1;
+					int weight = reader.nextInt();
+					builder.addEdge(vertex, neighbor, weight);
+				}
+				reader.nextLine();
+			}
+		}
+		return builder.build();
+	}
+}
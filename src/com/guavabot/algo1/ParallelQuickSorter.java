@@ -0,0 +1,265 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs QuickSort on a fork-join pool with the pivot strategy of another {@link QuickSorter}.
+ *
+ * After each partition the smaller part is forked as a task and the bigger one continues in the
+ * same task, down to a size where the strategy sorts sequentially. Comparisons are added to a
+ * {@link LongAdder} shared by all tasks. Very big ranges are also partitioned in parallel: blocks
+ * count their values smaller than the pivot, a prefix sum gives where each block writes, and
+ * the blocks are scattered to a buffer and copied back.
+ *
+ * The parallel partition keeps the values of each side in their original order, which the
+ * sequential partition does not, so later pivots can differ and the total comparisons can
+ * differ from the sequential sorter. Like {@link QuickSorter.IntroQuickSorter}, ranges partitioned
+ * more than 2 log n times are heapsorted, so the worst case is O(n log n); below the parallel
+ * partition threshold the counts are the same as the introsort with the same strategy.
+ * Only strategies that choose a single pivot can be used.
+ */
+public class ParallelQuickSorter extends QuickSorter {
+	
+	private static final int DEFAULT_FORK_THRESHOLD = 1 << 13;
+	private static final int DEFAULT_PARALLEL_PARTITION_THRESHOLD = 1 << 20;
+	private static final int PARTITION_BLOCK = 1 << 16;
+	
+	private final QuickSorter pivotStrategy;
+	private final IntroQuickSorter leafSorter;
+	private final ForkJoinPool pool;
+	private final int forkThreshold;
+	private final int parallelPartitionThreshold;
+	
+	public static void main(String[] args) throws IOException {
+		int[] integers = MappedTextReader.readInts(new File("data/QuickSort.txt"));
+		
+		//small thresholds so the example is split in tasks and partitioned in parallel
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		QuickSorter quickSorter = new ParallelQuickSorter(new QuickSorter1(), pool, 256, Integer.MAX_VALUE);
+		long comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with first position as pivot");
+		//162147 comparisons, the same as the introsort; a few deep ranges are heapsorted
+		
+		quickSorter = new ParallelQuickSorter(new QuickSorter2(), pool, 256, Integer.MAX_VALUE);
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with last position as pivot");
+		//164179 comparisons
+		
+		quickSorter = new ParallelQuickSorter(new QuickSorter3(), pool, 256, Integer.MAX_VALUE);
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with median-of-three as pivot");
+		//138382 comparisons
+		
+		quickSorter = new ParallelQuickSorter(new QuickSorter3(), pool, 256, 1024);
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with median-of-three as pivot and parallel partitions");
+	}
+	
+	public ParallelQuickSorter(QuickSorter pivotStrategy) {
+		this(pivotStrategy, ForkJoinPool.commonPool(), DEFAULT_FORK_THRESHOLD, DEFAULT_PARALLEL_PARTITION_THRESHOLD);
+	}
+	
+	/**
+	 * @param forkThreshold Size below which ranges are sorted sequentially by the strategy
+	 * @param parallelPartitionThreshold Size from which ranges are partitioned in parallel
+	 * @throws IllegalArgumentException If the strategy does not choose a single pivot, like dual-pivot or 3-way sorters
+	 */
+	public ParallelQuickSorter(QuickSorter pivotStrategy, ForkJoinPool pool,
+			int forkThreshold, int parallelPartitionThreshold) {
+		if (forkThreshold < 1) {
+			throw new IllegalArgumentException("fork threshold must be positive: " + forkThreshold);
+		}
+		if (!pivotStrategy.choosesSinglePivot()) {
+			throw new IllegalArgumentException("strategy does not choose a single pivot: "
+					+ pivotStrategy.getClass().getSimpleName());
+		}
+		this.pivotStrategy = pivotStrategy;
+		leafSorter = new IntroQuickSorter(pivotStrategy);
+		this.pool = pool;
+		this.forkThreshold = forkThreshold;
+		this.parallelPartitionThreshold = parallelPartitionThreshold;
+	}
+	
+	@Override
+	void movePivotToFirstPosition(int[] array, int from, int to) {
+		pivotStrategy.movePivotToFirstPosition(array, from, to);
+	}
+	
+	@Override
+	long sortAndCountComparisons(int[] array, int from, int to) {
+		LongAdder comparisons = new LongAdder();
+		int[] buffer = to - from >= parallelPartitionThreshold ? new int[array.length] : null;
+		pool.invoke(new SortAction(array, buffer, from, to, IntroQuickSorter.depthLimit(to - from), comparisons));
+		return comparisons.sum();
+	}
+	
+	private class SortAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] array;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		private final int depthLimit; //partitions left before heapsort
+		private final LongAdder comparisons;
+		
+		SortAction(int[] array, int[] buffer, int from, int to, int depthLimit, LongAdder comparisons) {
+			this.array = array;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.depthLimit = depthLimit;
+			this.comparisons = comparisons;
+		}
+		
+		@Override
+		protected void compute() {
+			List<SortAction> forked = new ArrayList<SortAction>();
+			int from = this.from;
+			int to = this.to;
+			int depthLimit = this.depthLimit;
+			while (to - from > forkThreshold && depthLimit > 0) {
+				depthLimit--;
+				movePivotToFirstPosition(array, from, to);
+				int pivotPos = to - from >= parallelPartitionThreshold
+						? parallelSortAroundPivot(array, buffer, from, to)
+						: sortAroundPivot(array, from, to);
+				comparisons.add(to - from - 1); //Pivot was compared once with each other position
+				
+				//Fork the smaller part so the stack only grows with the bigger ones
+				SortAction smaller;
+				if (pivotPos - from < to - pivotPos - 1) {
+					smaller = new SortAction(array, buffer, from, pivotPos, depthLimit, comparisons);
+					from = pivotPos + 1;
+				} else {
+					smaller = new SortAction(array, buffer, pivotPos + 1, to, depthLimit, comparisons);
+					to = pivotPos;
+				}
+				smaller.fork();
+				forked.add(smaller);
+			}
+			//The introsort heapsorts the range right away if no partitions are left
+			comparisons.add(leafSorter.sortAndCountComparisons(array, from, to, depthLimit));
+			for (SortAction action : forked) {
+				action.join();
+			}
+		}
+	}
+	
+	/**
+	 * Partitions around the pivot in the first position with parallel tasks.
+	 * @return Position of pivot after sorting
+	 */
+	private int parallelSortAroundPivot(int[] array, int[] buffer, int from, int to) {
+		int pivotValue = array[from];
+		int start = from + 1;
+		int blocks = (to - start + PARTITION_BLOCK - 1) / PARTITION_BLOCK;
+		int[] smallerCounts = new int[blocks];
+		new PartitionAction(PartitionAction.COUNT, array, buffer, start, to, pivotValue,
+				smallerCounts, null, null, 0, blocks).invoke();
+		
+		//Where each block starts writing its smaller values and its bigger or equal values
+		int[] smallerOffsets = new int[blocks];
+		int[] biggerOffsets = new int[blocks];
+		int smallerTotal = 0;
+		for (int b = 0; b < blocks; b++) {
+			smallerOffsets[b] = smallerTotal;
+			smallerTotal += smallerCounts[b];
+		}
+		int pivotPos = from + smallerTotal;
+		int biggerTotal = 0;
+		for (int b = 0; b < blocks; b++) {
+			biggerOffsets[b] = pivotPos + 1 + biggerTotal;
+			smallerOffsets[b] += from;
+			biggerTotal += Math.min(PARTITION_BLOCK, to - start - b * PARTITION_BLOCK) - smallerCounts[b];
+		}
+		
+		buffer[pivotPos] = pivotValue;
+		new PartitionAction(PartitionAction.SCATTER, array, buffer, start, to, pivotValue,
+				smallerCounts, smallerOffsets, biggerOffsets, 0, blocks).invoke();
+		new PartitionAction(PartitionAction.COPY_BACK, array, buffer, from, to, pivotValue,
+				null, null, null, 0, (to - from + PARTITION_BLOCK - 1) / PARTITION_BLOCK).invoke();
+		return pivotPos;
+	}
+	
+	/**
+	 * One phase of the parallel partition over a range of blocks.
+	 */
+	private static class PartitionAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		static final int COUNT = 0;
+		static final int SCATTER = 1;
+		static final int COPY_BACK = 2;
+		
+		private final int phase;
+		private final int[] array;
+		private final int[] buffer;
+		private final int start;
+		private final int end;
+		private final int pivotValue;
+		private final int[] smallerCounts;
+		private final int[] smallerOffsets;
+		private final int[] biggerOffsets;
+		private final int firstBlock;
+		private final int lastBlock;
+		
+		PartitionAction(int phase, int[] array, int[] buffer, int start, int end, int pivotValue,
+				int[] smallerCounts, int[] smallerOffsets, int[] biggerOffsets, int firstBlock, int lastBlock) {
+			this.phase = phase;
+			this.array = array;
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+			this.pivotValue = pivotValue;
+			this.smallerCounts = smallerCounts;
+			this.smallerOffsets = smallerOffsets;
+			this.biggerOffsets = biggerOffsets;
+			this.firstBlock = firstBlock;
+			this.lastBlock = lastBlock;
+		}
+		
+		@Override
+		protected void compute() {
+			if (lastBlock - firstBlock > 1) {
+				int middle = (firstBlock + lastBlock) >>> 1;
+				invokeAll(new PartitionAction(phase, array, buffer, start, end, pivotValue,
+								smallerCounts, smallerOffsets, biggerOffsets, firstBlock, middle),
+						new PartitionAction(phase, array, buffer, start, end, pivotValue,
+								smallerCounts, smallerOffsets, biggerOffsets, middle, lastBlock));
+				return;
+			}
+			int blockStart = start + firstBlock * PARTITION_BLOCK;
+			int blockEnd = Math.min(blockStart + PARTITION_BLOCK, end);
+			switch (phase) {
+			case COUNT:
+				int count = 0;
+				for (int i = blockStart; i < blockEnd; i++) {
+					if (array[i] < pivotValue) count++;
+				}
+				smallerCounts[firstBlock] = count;
+				break;
+			case SCATTER:
+				int smaller = smallerOffsets[firstBlock];
+				int bigger = biggerOffsets[firstBlock];
+				for (int i = blockStart; i < blockEnd; i++) {
+					if (array[i] < pivotValue) {
+						buffer[smaller++] = array[i];
+					} else {
+						buffer[bigger++] = array[i];
+					}
+				}
+				break;
+			default:
+				System.arraycopy(buffer, blockStart, array, blockStart, blockEnd - blockStart);
+				break;
+			}
+		}
+	}
+}
@@ -0,0 +1,467 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Finds strongly connected components in parallel with the Forward-Backward algorithm and trimming.
+ *
+ * Every vertex has a color that identifies the subproblem it belongs to. For a subproblem, the vertices
+ * reachable from a pivot (forward) and the vertices that reach the pivot (backward) are found; their
+ * intersection is the SCC of the pivot. Any other SCC lies entirely inside the forward set, the backward
+ * set or the rest, so those three subproblems are solved independently as fork-join tasks.
+ * Before that, vertices without incoming or outgoing edges inside their subproblem are trimmed,
+ * repeatedly, as single vertex components. Small subproblems are solved with Tarjan's algorithm.
+ */
+public class ParallelSCC {
+	
+	private static final int SEQUENTIAL_THRESHOLD = 4096; //vertices below which Tarjan is used
+	private static final int GRAIN = 1024; //vertices handled by a single task in parallel loops
+	private static final int DONE = -1; //color of vertices already assigned to a component
+	
+	private final ForkJoinPool pool;
+	
+	private CsrGraph graph;
+	private CsrGraph invertedGraph;
+	private AtomicIntegerArray color;
+	private int[] component;
+	private AtomicInteger nextColor;
+	private AtomicInteger nextComponent;
+	
+	//Tarjan state; each vertex is touched by a single Tarjan run
+	private int[] index;
+	private int[] lowLink;
+	private int[] edgeCursor;
+	private boolean[] onStack;
+	
+	public static void main(String[] args) throws IOException {
+		CsrGraph graph = BinaryDataFile.loadEdgeList(new File("data/SCC.txt"));
+		System.out.println("graph size: " + graph.getVertexCount());
+		
+		ParallelSCC parallelScc = new ParallelSCC();
+		int[] components = parallelScc.findSCC(graph);
+		int[] largest = KosarajuSCC.largestComponentSizes(components, parallelScc.getComponentCount(), 10);
+		for (int i = 0; i < largest.length; i++) {
+			System.out.println("Group " + (i + 1) + ": " + largest[i] + " nodes");
+		}
+		//same groups as KosarajuSCC
+	}
+	
+	public ParallelSCC() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	public ParallelSCC(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * @param graph Normal graph. The inverted graph is built from it.
+	 * @return Component of each vertex, numbered from 0. Numbers can differ from
+	 * 				{@link KosarajuSCC#findSCC(CsrGraph)}, but the components are the same.
+	 */
+	public int[] findSCC(CsrGraph graph) {
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		invertedGraph = graph.reverse();
+		color = new AtomicIntegerArray(vertexCount);
+		component = new int[vertexCount];
+		nextColor = new AtomicInteger(1);
+		nextComponent = new AtomicInteger();
+		index = new int[vertexCount];
+		lowLink = new int[vertexCount];
+		edgeCursor = new int[vertexCount];
+		onStack = new boolean[vertexCount];
+		
+		int[] vertices = new int[vertexCount];
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			vertices[vertex] = vertex;
+		}
+		pool.invoke(new Subproblem(vertices, 0));
+		
+		int[] result = component;
+		this.graph = null;
+		invertedGraph = null;
+		color = null;
+		component = null;
+		index = null;
+		lowLink = null;
+		edgeCursor = null;
+		onStack = null;
+		return result;
+	}
+	
+	/**
+	 * @return Number of components found by the last call to {@link #findSCC(CsrGraph)}
+	 */
+	public int getComponentCount() {
+		return nextComponent.get();
+	}
+	
+	/**
+	 * All the vertices with the same color, which contain whole SCCs.
+	 *
+	 * Each step peels off the SCC of a random pivot. The biggest of the forward, backward and rest
+	 * subproblems is solved in the same task by the next step, and only the other two are forked,
+	 * so chains of SCCs do not nest tasks and only the arrays of the current step are kept alive.
+	 */
+	private class Subproblem extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private int[] vertices; //released once the task starts
+		private final int subColor;
+		
+		Subproblem(int[] vertices, int subColor) {
+			this.vertices = vertices;
+			this.subColor = subColor;
+		}
+		
+		@Override
+		protected void compute() {
+			int[] current = vertices;
+			vertices = null;
+			int currentColor = subColor;
+			List<Subproblem> forked = new ArrayList<Subproblem>();
+			while (true) {
+				int[] remaining = trim(current, currentColor);
+				current = null;
+				if (remaining.length == 0) {
+					break;
+				}
+				if (remaining.length <= SEQUENTIAL_THRESHOLD) {
+					tarjan(remaining, currentColor);
+					break;
+				}
+				
+				//a random pivot splits chains of SCCs evenly on average
+				int pivot = remaining[ThreadLocalRandom.current().nextInt(remaining.length)];
+				int forwardColor = nextColor.getAndIncrement();
+				int backwardColor = nextColor.getAndIncrement();
+				int sccColor = nextColor.getAndIncrement();
+				
+				//forward: c -> forward; backward: c -> backward, forward -> scc
+				color.set(pivot, forwardColor);
+				reach(graph, pivot, currentColor, forwardColor, currentColor, forwardColor);
+				color.set(pivot, sccColor);
+				reach(invertedGraph, pivot, currentColor, backwardColor, forwardColor, sccColor);
+				
+				int forwardCount = 0, backwardCount = 0, restCount = 0;
+				for (int vertex : remaining) {
+					int c = color.get(vertex);
+					if (c == forwardColor) {
+						forwardCount++;
+					} else if (c == backwardColor) {
+						backwardCount++;
+					} else if (c != sccColor) {
+						restCount++;
+					}
+				}
+				int[] forward = new int[forwardCount];
+				int[] backward = new int[backwardCount];
+				int[] rest = new int[restCount];
+				forwardCount = backwardCount = restCount = 0;
+				int sccId = nextComponent.getAndIncrement();
+				for (int vertex : remaining) {
+					int c = color.get(vertex);
+					if (c == sccColor) {
+						component[vertex] = sccId;
+						color.set(vertex, DONE);
+					} else if (c == forwardColor) {
+						forward[forwardCount++] = vertex;
+					} else if (c == backwardColor) {
+						backward[backwardCount++] = vertex;
+					} else {
+						rest[restCount++] = vertex;
+					}
+				}
+				remaining = null;
+				
+				int[][] parts = {forward, backward, rest};
+				int[] partColors = {forwardColor, backwardColor, currentColor};
+				int biggest = 0;
+				for (int i = 1; i < parts.length; i++) {
+					if (parts[i].length > parts[biggest].length) {
+						biggest = i;
+					}
+				}
+				for (int i = 0; i < parts.length; i++) {
+					if (i != biggest && parts[i].length > 0) {
+						Subproblem task = new Subproblem(parts[i], partColors[i]);
+						task.fork();
+						forked.add(task);
+					}
+				}
+				current = parts[biggest];
+				currentColor = partColors[biggest];
+			}
+			for (Subproblem task : forked) {
+				task.join();
+			}
+		}
+	}
+	
+	/**
+	 * Removes vertices that have no incoming or no outgoing edge inside the subproblem;
+	 * each one is a component by itself. After a first pass over all the vertices, only the
+	 * neighbors of the trimmed ones are checked again, until no vertex is trimmed, so the work
+	 * is linear in the edges of the subproblem. Concurrent removals are safe because a vertex
+	 * only becomes easier to trim as its neighbors are removed.
+	 * @return Vertices still in the subproblem
+	 */
+	private int[] trim(int[] vertices, int subColor) {
+		int[] trimmed = trim(vertices, subColor, false);
+		while (trimmed.length > 0) {
+			trimmed = trim(trimmed, subColor, true);
+		}
+		
+		int count = 0;
+		for (int vertex : vertices) {
+			if (color.get(vertex) == subColor) {
+				count++;
+			}
+		}
+		int[] remaining = new int[count];
+		count = 0;
+		for (int vertex : vertices) {
+			if (color.get(vertex) == subColor) {
+				remaining[count++] = vertex;
+			}
+		}
+		return remaining;
+	}
+	
+	/**
+	 * @param neighbors Whether to check the neighbors of the given vertices instead of the vertices
+	 * @return Vertices trimmed
+	 */
+	private int[] trim(int[] vertices, int subColor, boolean neighbors) {
+		TrimTask task = new TrimTask(vertices, 0, vertices.length, subColor, neighbors);
+		return vertices.length > GRAIN ? task.invoke() : task.compute();
+	}
+	
+	private boolean tryTrim(int vertex, int subColor) {
+		if (color.get(vertex) == subColor
+				&& (!hasEdgeInside(graph, vertex, subColor) || !hasEdgeInside(invertedGraph, vertex, subColor))
+				&& color.compareAndSet(vertex, subColor, DONE)) {
+			component[vertex] = nextComponent.getAndIncrement();
+			return true;
+		}
+		return false;
+	}
+	
+	private boolean hasEdgeInside(CsrGraph g, int vertex, int subColor) {
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+			if (color.get(targets[i]) == subColor) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private class TrimTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] vertices;
+		private final int from;
+		private final int to;
+		private final int subColor;
+		private final boolean neighbors;
+		
+		TrimTask(int[] vertices, int from, int to, int subColor, boolean neighbors) {
+			this.vertices = vertices;
+			this.from = from;
+			this.to = to;
+			this.subColor = subColor;
+			this.neighbors = neighbors;
+		}
+		
+		@Override
+		protected int[] compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				TrimTask left = new TrimTask(vertices, from, middle, subColor, neighbors);
+				left.fork();
+				int[] rightTrimmed = new TrimTask(vertices, middle, to, subColor, neighbors).compute();
+				int[] leftTrimmed = left.join();
+				int[] trimmed = Arrays.copyOf(leftTrimmed, leftTrimmed.length + rightTrimmed.length);
+				System.arraycopy(rightTrimmed, 0, trimmed, leftTrimmed.length, rightTrimmed.length);
+				return trimmed;
+			}
+			
+			int[] trimmed = new int[16];
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				int vertex = vertices[i];
+				if (!neighbors) {
+					if (tryTrim(vertex, subColor)) {
+						trimmed = append(trimmed, count++, vertex);
+					}
+					continue;
+				}
+				for (CsrGraph g : new CsrGraph[] {graph, invertedGraph}) {
+					int[] offsets = g.getOffsets();
+					int[] targets = g.getTargets();
+					for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+						int other = targets[e];
+						if (tryTrim(other, subColor)) {
+							trimmed = append(trimmed, count++, other);
+						}
+					}
+				}
+			}
+			return Arrays.copyOf(trimmed, count);
+		}
+	}
+	
+	private static int[] append(int[] array, int count, int value) {
+		if (count == array.length) {
+			array = Arrays.copyOf(array, count * 2);
+		}
+		array[count] = value;
+		return array;
+	}
+	
+	/**
+	 * Level synchronous breadth first search from the start vertex, which must be colored already.
+	 * Vertices with colorA change to newColorA and vertices with colorB change to newColorB;
+	 * any other vertex is not crossed. Big levels are expanded in parallel.
+	 * Must be called from a task running in the pool.
+	 */
+	private void reach(CsrGraph g, int start, int colorA, int newColorA, int colorB, int newColorB) {
+		int[] frontier = {start};
+		while (frontier.length > 0) {
+			ExpandTask expand = new ExpandTask(g, frontier, 0, frontier.length, colorA, newColorA, colorB, newColorB);
+			frontier = frontier.length > GRAIN ? expand.invoke() : expand.compute();
+		}
+	}
+	
+	private class ExpandTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		
+		private final CsrGraph g;
+		private final int[] frontier;
+		private final int from;
+		private final int to;
+		private final int colorA;
+		private final int newColorA;
+		private final int colorB;
+		private final int newColorB;
+		
+		ExpandTask(CsrGraph g, int[] frontier, int from, int to,
+				int colorA, int newColorA, int colorB, int newColorB) {
+			this.g = g;
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.colorA = colorA;
+			this.newColorA = newColorA;
+			this.colorB = colorB;
+			this.newColorB = newColorB;
+		}
+		
+		@Override
+		protected int[] compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				ExpandTask left = new ExpandTask(g, frontier, from, middle, colorA, newColorA, colorB, newColorB);
+				left.fork();
+				int[] rightNext = new ExpandTask(g, frontier, middle, to, colorA, newColorA, colorB, newColorB).compute();
+				int[] leftNext = left.join();
+				int[] next = Arrays.copyOf(leftNext, leftNext.length + rightNext.length);
+				System.arraycopy(rightNext, 0, next, leftNext.length, rightNext.length);
+				return next;
+			}
+			
+			int[] offsets = g.getOffsets();
+			int[] targets = g.getTargets();
+			int[] next = new int[16];
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				int vertex = frontier[i];
+				for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+					int other = targets[e];
+					int c = color.get(other);
+					if ((c == colorA && color.compareAndSet(other, colorA, newColorA))
+							|| (c == colorB && color.compareAndSet(other, colorB, newColorB))) {
+						if (count == next.length) {
+							next = Arrays.copyOf(next, count * 2);
+						}
+						next[count++] = other;
+					}
+				}
+			}
+			return Arrays.copyOf(next, count);
+		}
+	}
+	
+	/**
+	 * Iterative Tarjan's algorithm restricted to the vertices of one subproblem.
+	 */
+	private void tarjan(int[] vertices, int subColor) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		int[] callStack = new int[vertices.length];
+		int[] sccStack = new int[vertices.length];
+		int sccTop = 0;
+		int counter = 0;
+		
+		for (int root : vertices) {
+			if (index[root] != 0 || color.get(root) != subColor) continue;
+			counter++;
+			index[root] = lowLink[root] = counter;
+			edgeCursor[root] = offsets[root];
+			onStack[root] = true;
+			sccStack[sccTop++] = root;
+			callStack[0] = root;
+			int callTop = 1;
+			
+			while (callTop > 0) {
+				int vertex = callStack[callTop - 1];
+				int edge = edgeCursor[vertex];
+				if (edge < offsets[vertex + 1]) {
+					edgeCursor[vertex] = edge + 1;
+					int other = targets[edge];
+					if (color.get(other) != subColor) continue; //outside the subproblem
+					if (index[other] == 0) {
+						counter++;
+						index[other] = lowLink[other] = counter;
+						edgeCursor[other] = offsets[other];
+						onStack[other] = true;
+						sccStack[sccTop++] = other;
+						callStack[callTop++] = other;
+					} else if (onStack[other]) {
+						lowLink[vertex] = Math.min(lowLink[vertex], index[other]);
+					}
+				} else {
+					callTop--;
+					if (callTop > 0) {
+						int parent = callStack[callTop - 1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+					}
+					if (lowLink[vertex] == index[vertex]) {
+						//vertex is the root of an SCC made of the vertices above it in the stack
+						int id = nextComponent.getAndIncrement();
+						int member;
+						do {
+							member = sccStack[--sccTop];
+							onStack[member] = false;
+							component[member] = id;
+							color.set(member, DONE);
+						} while (member != vertex);
+					}
+				}
+			}
+		}
+	}
+}
@@ -2,40 +2,59 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Scanner;
+import java.util.Random;
 
 /**
  * Sorts an array using QuickSort and counts the number of comparisons needed
  * using three different variations to choose a pivot. 
+ * 
+ * More robust variations are also available: random and ninther pivots, dual-pivot
+ * and 3-way partitioning, and an introsort that falls back to heapsort.
  */
 public abstract class QuickSorter {
 	
 	public static void main(String[] args) throws IOException {
-		List<Integer> integers = new ArrayList<Integer>();
-		File file = new File("data/QuickSort.txt");
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextInt()) {
-			integers.add(scanner.nextInt());
-		}
-		scanner.close();
+		int[] integers = MappedTextReader.readInts(new File("data/QuickSort.txt"));
 		
 		QuickSorter quickSorter = new QuickSorter1();
-		long comparisons = quickSorter.sortAndCountComparisons(quickSorter, Utils.listToIntArray(integers));
+		long comparisons = quickSorter.sortAndCountComparisons(integers.clone());
 		System.out.println(comparisons + " comparisons with first position as pivot");
 		//162085 comparisons
 		
 		quickSorter = new QuickSorter2();
-		comparisons = quickSorter.sortAndCountComparisons(quickSorter, Utils.listToIntArray(integers));
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
 		System.out.println(comparisons + " comparisons with last position as pivot");
 		//164123 comparisons
 		
 		quickSorter = new QuickSorter3();
-		comparisons = quickSorter.sortAndCountComparisons(quickSorter, Utils.listToIntArray(integers));
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
 		System.out.println(comparisons + " comparisons with median-of-three as pivot");
 		//138382 comparisons
+		
+		quickSorter = new QuickSorter4();
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with random pivot");
+		//changes on every run
+		
+		quickSorter = new QuickSorter5();
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with ninther as pivot");
+		//122264 comparisons
+		
+		quickSorter = new DualPivotQuickSorter();
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with dual-pivot partitioning");
+		//151096 comparisons
+		
+		quickSorter = new ThreeWayQuickSorter();
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with 3-way partitioning");
+		//186760 comparisons
+		
+		quickSorter = new IntroQuickSorter(new QuickSorter1());
+		comparisons = quickSorter.sortAndCountComparisons(integers.clone());
+		System.out.println(comparisons + " comparisons with introsort and first position as pivot");
+		//162147 comparisons
 	}
 	
 	static void swap(int[] array, int index1, int index2) {
@@ -44,34 +63,70 @@ public abstract class QuickSorter {
 		array[index2] = temp;
 	}
 	
-	abstract void movePivotToFirstPosition(int[] array);
-	
-	public long sortAndCountComparisons(QuickSorter quickSorter, int[] array) {
-		if (array.length <= 1) {
-			return 0;
+	/**
+	 * @return Position of the median of the values at the three positions
+	 */
+	static int medianOfThree(int[] array, int a, int b, int c) {
+		if (array[a] < array[b]) {
+			if (array[b] < array[c]) return b;
+			return array[a] < array[c] ? c : a;
 		} else {
-			movePivotToFirstPosition(array);
-			int pivotPos = sortAroundPivot(array);
-			long comparisons = array.length - 1; //Pivot was compared once with each other position
-			
-			//Recurse on left and right parts
-			int[] leftPart = Arrays.copyOfRange(array, 0, pivotPos);
-			comparisons += sortAndCountComparisons(this, leftPart);
-			int[] rightPart = Arrays.copyOfRange(array, pivotPos + 1, array.length);
-			comparisons += sortAndCountComparisons(this, rightPart);
+			if (array[a] < array[c]) return a;
+			return array[b] < array[c] ? c : b;
+		}
+	}
+	
+	/**
+	 * Moves the chosen pivot of the range [from, to) to position from.
+	 */
+	abstract void movePivotToFirstPosition(int[] array, int from, int to);
+	
+	/**
+	 * @return Whether the sorter partitions around the single pivot of {@link #movePivotToFirstPosition(int[], int, int)}
+	 * 			with {@link #sortAroundPivot(int[], int, int)}, so other sorters can reuse its pivots
+	 */
+	boolean choosesSinglePivot() {
+		return true;
+	}
+	
+	/**
+	 * Sorts the array in place.
+	 * @return Number of comparisons with the pivots
+	 */
+	public long sortAndCountComparisons(int[] array) {
+		return sortAndCountComparisons(array, 0, array.length);
+	}
+	
+	/**
+	 * Sorts the range [from, to) of the array in place. Only the smaller part is sorted recursively;
+	 * the loop continues with the bigger one, so the stack depth is O(log n).
+	 */
+	long sortAndCountComparisons(int[] array, int from, int to) {
+		long comparisons = 0;
+		while (to - from > 1) {
+			movePivotToFirstPosition(array, from, to);
+			int pivotPos = sortAroundPivot(array, from, to);
+			comparisons += to - from - 1; //Pivot was compared once with each other position
 			
-			return comparisons;
+			if (pivotPos - from < to - pivotPos - 1) {
+				comparisons += sortAndCountComparisons(array, from, pivotPos);
+				from = pivotPos + 1;
+			} else {
+				comparisons += sortAndCountComparisons(array, pivotPos + 1, to);
+				to = pivotPos;
+			}
 		}
+		return comparisons;
 	}
 
 	/**
 	 * @return Position of pivot after sorting
 	 */
-	private int sortAroundPivot(int[] array) {
+	int sortAroundPivot(int[] array, int from, int to) {
 		//Sort with respect to pivot
-		int pivotValue = array[0];
-		int center = 1;
-		for (int j = 1; j < array.length; j++) {
+		int pivotValue = array[from];
+		int center = from + 1;
+		for (int j = from + 1; j < to; j++) {
 			if (array[j] < pivotValue) {
 				swap(array, j, center);
 				center++;
@@ -79,7 +134,7 @@ public abstract class QuickSorter {
 		}
 		
 		int pivotPos = center - 1;
-		swap(array, 0, pivotPos); //Swap pivot in the correct position
+		swap(array, from, pivotPos); //Swap pivot in the correct position
 		return pivotPos;
 	}
 	
@@ -89,7 +144,7 @@ public abstract class QuickSorter {
 	static class QuickSorter1 extends QuickSorter {
 
 		@Override
-		void movePivotToFirstPosition(int[] array) {
+		void movePivotToFirstPosition(int[] array, int from, int to) {
 			// Use directly first position as pivot
 		}
 	}
@@ -100,8 +155,8 @@ public abstract class QuickSorter {
 	static class QuickSorter2 extends QuickSorter {
 
 		@Override
-		void movePivotToFirstPosition(int[] array) {
-			swap(array, 0, array.length - 1);
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			swap(array, from, to - 1);
 		}
 	}
 
@@ -113,10 +168,10 @@ public abstract class QuickSorter {
 	static class QuickSorter3 extends QuickSorter {
 
 		@Override
-		void movePivotToFirstPosition(int[] array) {
-			int first = 0;
-			int middle = (array.length - 1) / 2;
-			int last = array.length - 1;
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			int first = from;
+			int middle = from + (to - from - 1) / 2;
+			int last = to - 1;
 			if ((array[middle] > array[first] && array[middle] < array[last])
 					|| (array[middle] < array[first] && array[middle] > array[last])) {
 				//middle position is median
@@ -129,4 +184,296 @@ public abstract class QuickSorter {
 		}
 	}
 	
+	/**
+	 * Fourth version uses a random position as pivot,
+	 * so no input is consistently bad.
+	 */
+	static class QuickSorter4 extends QuickSorter {
+		
+		private final Random random;
+		
+		QuickSorter4() {
+			this(new Random());
+		}
+		
+		QuickSorter4(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			swap(array, from, from + random.nextInt(to - from));
+		}
+	}
+	
+	/**
+	 * Fifth version uses Tukey's ninther for big ranges: the median of the medians-of-three
+	 * of three groups spread over the range. Small ranges use a median-of-three.
+	 * As with median-of-three, the comparisons to find the pivot are not counted.
+	 */
+	static class QuickSorter5 extends QuickSorter {
+		
+		private static final int NINTHER_THRESHOLD = 40;
+
+		@Override
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			moveNintherToFirstPosition(array, from, to);
+		}
+		
+		static void moveNintherToFirstPosition(int[] array, int from, int to) {
+			int first = from;
+			int middle = from + (to - from - 1) / 2;
+			int last = to - 1;
+			int median;
+			if (to - from < NINTHER_THRESHOLD) {
+				median = medianOfThree(array, first, middle, last);
+			} else {
+				int step = (to - from) / 8;
+				median = medianOfThree(array,
+						medianOfThree(array, first, first + step, first + 2 * step),
+						medianOfThree(array, middle - step, middle, middle + step),
+						medianOfThree(array, last - 2 * step, last - step, last));
+			}
+			swap(array, first, median);
+		}
+	}
+	
+	/**
+	 * Partitions around two pivots at once, into values smaller than the first pivot,
+	 * values between both pivots and values bigger than the second pivot.
+	 * The pivots are taken from the positions at one and two thirds of the range.
+	 * Every comparison between values is counted.
+	 */
+	static class DualPivotQuickSorter extends QuickSorter {
+
+		@Override
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			//Move the pivots to both ends, the smaller one first
+			int third = (to - from) / 3;
+			swap(array, from, from + third);
+			swap(array, to - 1, to - 1 - third);
+		}
+		
+		@Override
+		boolean choosesSinglePivot() {
+			return false;
+		}
+		
+		@Override
+		long sortAndCountComparisons(int[] array, int from, int to) {
+			long comparisons = 0;
+			while (to - from > 1) {
+				movePivotToFirstPosition(array, from, to);
+				comparisons++;
+				if (array[from] > array[to - 1]) {
+					swap(array, from, to - 1);
+				}
+				int pivot1 = array[from];
+				int pivot2 = array[to - 1];
+				
+				//[from + 1, less) < pivot1 <= [less, k) <= pivot2 < (great, to - 1)
+				int less = from + 1;
+				int great = to - 2;
+				for (int k = less; k <= great; k++) {
+					comparisons++;
+					if (array[k] < pivot1) {
+						swap(array, k, less++);
+					} else {
+						comparisons++;
+						if (array[k] > pivot2) {
+							while (k < great) {
+								comparisons++;
+								if (array[great] > pivot2) {
+									great--;
+								} else {
+									break;
+								}
+							}
+							swap(array, k, great--);
+							comparisons++;
+							if (array[k] < pivot1) {
+								swap(array, k, less++);
+							}
+						}
+					}
+				}
+				int pivot1Pos = less - 1;
+				int pivot2Pos = great + 1;
+				swap(array, from, pivot1Pos);
+				swap(array, to - 1, pivot2Pos);
+				
+				//Recurse on the two smaller parts and loop on the biggest one.
+				//If both pivots are equal, the middle part only has copies of them and is sorted.
+				int leftSize = pivot1Pos - from;
+				int middleSize = pivot1 == pivot2 ? 0 : pivot2Pos - pivot1Pos - 1;
+				int rightSize = to - pivot2Pos - 1;
+				if (leftSize >= middleSize && leftSize >= rightSize) {
+					if (middleSize > 0) comparisons += sortAndCountComparisons(array, pivot1Pos + 1, pivot2Pos);
+					comparisons += sortAndCountComparisons(array, pivot2Pos + 1, to);
+					to = pivot1Pos;
+				} else if (middleSize >= rightSize) {
+					comparisons += sortAndCountComparisons(array, from, pivot1Pos);
+					comparisons += sortAndCountComparisons(array, pivot2Pos + 1, to);
+					from = pivot1Pos + 1;
+					to = pivot2Pos;
+				} else {
+					comparisons += sortAndCountComparisons(array, from, pivot1Pos);
+					if (middleSize > 0) comparisons += sortAndCountComparisons(array, pivot1Pos + 1, pivot2Pos);
+					from = pivot2Pos + 1;
+				}
+			}
+			return comparisons;
+		}
+	}
+	
+	/**
+	 * Dutch national flag partitioning around a ninther pivot: values smaller than,
+	 * equal to and bigger than the pivot. Values equal to the pivot are done after one pass,
+	 * so inputs with many duplicates are not quadratic. Every comparison with the pivot is counted.
+	 */
+	static class ThreeWayQuickSorter extends QuickSorter {
+
+		@Override
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			//A plain median-of-three is quadratic on sorted input here, because the partition
+			//leaves the smallest value at the end of the left part
+			QuickSorter5.moveNintherToFirstPosition(array, from, to);
+		}
+		
+		@Override
+		boolean choosesSinglePivot() {
+			return false;
+		}
+		
+		@Override
+		long sortAndCountComparisons(int[] array, int from, int to) {
+			long comparisons = 0;
+			while (to - from > 1) {
+				movePivotToFirstPosition(array, from, to);
+				int pivotValue = array[from];
+				
+				//[from, lt) < pivot == [lt, i) ; [i, gt] unknown ; (gt, to) > pivot
+				int lt = from;
+				int i = from + 1;
+				int gt = to - 1;
+				while (i <= gt) {
+					comparisons++;
+					if (array[i] < pivotValue) {
+						swap(array, lt++, i++);
+					} else {
+						comparisons++;
+						if (array[i] > pivotValue) {
+							swap(array, i, gt--);
+						} else {
+							i++;
+						}
+					}
+				}
+				
+				if (lt - from < to - gt - 1) {
+					comparisons += sortAndCountComparisons(array, from, lt);
+					from = gt + 1;
+				} else {
+					comparisons += sortAndCountComparisons(array, gt + 1, to);
+					to = lt;
+				}
+			}
+			return comparisons;
+		}
+	}
+	
+	/**
+	 * Introsort: QuickSort with another pivot strategy until the recursion is deeper than 2 log n,
+	 * which only happens with bad pivots, and heapsort from there, so the worst case is O(n log n).
+	 * Comparisons made by heapsort are counted too.
+	 */
+	static class IntroQuickSorter extends QuickSorter {
+		
+		private final QuickSorter pivotStrategy;
+		
+		IntroQuickSorter(QuickSorter pivotStrategy) {
+			this.pivotStrategy = pivotStrategy;
+		}
+
+		@Override
+		void movePivotToFirstPosition(int[] array, int from, int to) {
+			pivotStrategy.movePivotToFirstPosition(array, from, to);
+		}
+		
+		@Override
+		boolean choosesSinglePivot() {
+			return pivotStrategy.choosesSinglePivot();
+		}
+		
+		@Override
+		long sortAndCountComparisons(int[] array, int from, int to) {
+			return sortAndCountComparisons(array, from, to, depthLimit(to - from));
+		}
+		
+		/**
+		 * @return Partitions allowed before falling back to heapsort, 2 log n
+		 */
+		static int depthLimit(int size) {
+			return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(size, 1)));
+		}
+		
+		long sortAndCountComparisons(int[] array, int from, int to, int depthLimit) {
+			long comparisons = 0;
+			while (to - from > 1) {
+				if (depthLimit == 0) {
+					return comparisons + heapSortAndCountComparisons(array, from, to);
+				}
+				depthLimit--;
+				movePivotToFirstPosition(array, from, to);
+				int pivotPos = sortAroundPivot(array, from, to);
+				comparisons += to - from - 1;
+				
+				if (pivotPos - from < to - pivotPos - 1) {
+					comparisons += sortAndCountComparisons(array, from, pivotPos, depthLimit);
+					from = pivotPos + 1;
+				} else {
+					comparisons += sortAndCountComparisons(array, pivotPos + 1, to, depthLimit);
+					to = pivotPos;
+				}
+			}
+			return comparisons;
+		}
+		
+		static long heapSortAndCountComparisons(int[] array, int from, int to) {
+			int size = to - from;
+			long comparisons = 0;
+			for (int i = size / 2 - 1; i >= 0; i--) {
+				comparisons += siftDown(array, from, i, size);
+			}
+			for (int end = size - 1; end > 0; end--) {
+				swap(array, from, from + end);
+				comparisons += siftDown(array, from, 0, end);
+			}
+			return comparisons;
+		}
+		
+		/**
+		 * Sifts down position i of the max-heap stored from position offset.
+		 * @return Comparisons made
+		 */
+		private static long siftDown(int[] array, int offset, int i, int size) {
+			long comparisons = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) break;
+				if (child + 1 < size) {
+					comparisons++;
+					if (array[offset + child + 1] > array[offset + child]) {
+						child++;
+					}
+				}
+				comparisons++;
+				if (array[offset + child] <= array[offset + i]) break;
+				swap(array, offset + i, offset + child);
+				i = child;
+			}
+			return comparisons;
+		}
+	}
+
 }
@@ -1,49 +1,123 @@
 package com.guavabot.algo1;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Finds the Min-Cut of a graph using the RandomContraction algorithm. 
+ * Finds the Min-Cut of a graph using the RandomContraction algorithm.
  * The accuracy of the result depends on the number of experiments {@code NUM_EXPERIMENTS}
  */
 public class RandomContraction {
 	
 	private static final int NUM_EXPERIMENTS = 10_000;
+	private static final double KARGER_STEIN_SUCCESS_PROBABILITY = 0.9999;
 	
-	private final Random mRandom = new Random();
+	private static final int TASKS_PER_THREAD = 8;
+	
+	/**
+	 * Algorithms that can be used for each experiment.
+	 */
+	public enum Mode {
+		/** Contract random edges until two vertices remain */
+		KARGER,
+		/** Contract to n / sqrt(2) vertices twice, recurse on both graphs and keep the best cut */
+		KARGER_STEIN
+	}
+	
+	private final Mode mode;
 	
 	public static void main(String[] args) throws IOException {
-		Map<Integer, List<Integer>> graph = new HashMap<Integer, List<Integer>>();
-		File file = new File("data/kargerMinCut.txt");
-		Scanner scanner = new Scanner(file);
-		scanner.useDelimiter("\\s");
-		while (scanner.hasNextLine()) {
-			int vertex = scanner.nextInt();
-			List<Integer> edges = new ArrayList<Integer>();
-			while (scanner.hasNextInt()) {
-				edges.add(scanner.nextInt());
-			}
-			graph.put(vertex, edges);
-			scanner.nextLine();
-		}
-		scanner.close();
-		System.out.println("graph size: " + graph.keySet().size());
+		CsrGraph graph = BinaryDataFile.loadAdjacencyList(new File("data/kargerMinCut.txt"));
+		System.out.println("graph size: " + graph.getVertexCount());
 		
 		RandomContraction minCut = new RandomContraction();
 		int edgeCount = minCut.findMinCut(graph);
 		System.out.println("Edges in min cut: " + edgeCount);
 		//Edges in min cut: 17
+		
+		Cut cut = minCut.findMinCutParallel(graph, 0.99, 10_000);
+		int firstSide = 0;
+		for (int side : cut.getPartition()) {
+			if (side == 0) firstSide++;
+		}
+		System.out.println("Edges in min cut: " + cut.getSize() + " after " + cut.getTrials() + " trials, splitting "
+				+ firstSide + " and " + (graph.getVertexCount() - firstSide) + " vertices, with probability "
+				+ cut.getSuccessProbability());
+		
+		RandomContraction kargerStein = new RandomContraction(Mode.KARGER_STEIN);
+		edgeCount = kargerStein.findMinCut(graph);
+		System.out.println("Edges in min cut with Karger-Stein: " + edgeCount);
+		//Edges in min cut with Karger-Stein: 17
+	}
+	
+	public RandomContraction() {
+		this(Mode.KARGER);
+	}
+	
+	public RandomContraction(Mode mode) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * A cut found by the parallel search.
+	 */
+	public static class Cut {
+		private final int size;
+		private final int[] partition;
+		private final long trials;
+		private final double successProbability;
+		
+		Cut(int size, int[] partition, long trials, double successProbability) {
+			this.size = size;
+			this.partition = partition;
+			this.trials = trials;
+			this.successProbability = successProbability;
+		}
+		
+		/**
+		 * @return Whether any experiment finished before the time budget ran out
+		 */
+		public boolean isFound() {
+			return partition != null;
+		}
+		
+		/**
+		 * @return Number of edges in the cut, or -1 if no cut was found
+		 */
+		public int getSize() {
+			return size;
+		}
+		
+		/**
+		 * @return Side of each vertex, 0 or 1; vertex 0 is always on side 0. Null if no cut was found.
+		 */
+		public int[] getPartition() {
+			return partition;
+		}
+		
+		/**
+		 * @return Contraction experiments run, fewer than planned if the time budget ran out
+		 */
+		public long getTrials() {
+			return trials;
+		}
+		
+		/**
+		 * @return Lower bound of the probability that this is a min cut, given the experiments actually run
+		 */
+		public double getSuccessProbability() {
+			return successProbability;
+		}
 	}
 	
 	/**
@@ -52,9 +126,37 @@ public class RandomContraction {
 	 * @return Number of edges in the min cut
 	 */
 	public int findMinCut(Map<Integer, List<Integer>> graph) {
+		Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+		for (Integer vertex : graph.keySet()) {
+			indexes.put(vertex, indexes.size());
+		}
+		CsrGraph.Builder builder = new CsrGraph.Builder().ensureVertexCount(indexes.size());
+		for (Map.Entry<Integer, List<Integer>> entry : graph.entrySet()) {
+			int vertex = indexes.get(entry.getKey());
+			for (Integer neighbor : entry.getValue()) {
+				builder.addEdge(vertex, indexes.get(neighbor));
+			}
+		}
+		return findMinCut(builder.build());
+	}
+	
+	/**
+	 * Runs {@code NUM_EXPERIMENTS} experiments with Karger's algorithm, or with Karger-Stein
+	 * as many as needed to find a min cut with probability {@value #KARGER_STEIN_SUCCESS_PROBABILITY}.
+	 * @param graph Undirected graph with every edge stored in both directions, like kargerMinCut.txt
+	 * @return Number of edges in the min cut
+	 */
+	public int findMinCut(CsrGraph graph) {
+		if (graph.getVertexCount() < 2) {
+			return 0;
+		}
+		Trial trial = newTrial(graph);
+		SplittableRandom random = new SplittableRandom();
+		long experiments = mode == Mode.KARGER ? NUM_EXPERIMENTS
+				: trialsFor(mode, graph.getVertexCount(), KARGER_STEIN_SUCCESS_PROBABILITY);
 		int count = Integer.MAX_VALUE;
-		for (int i = 0; i < NUM_EXPERIMENTS; i++) {
-			int result = runMinCut(deepClone(graph));
+		for (long i = 0; i < experiments; i++) {
+			int result = trial.run(random);
 			if (result < count) {
 				count = result;
 			}
@@ -62,57 +164,550 @@ public class RandomContraction {
 		return count;
 	}
 	
-	private int runMinCut(Map<Integer, List<Integer>> graph) {
-		while (graph.size() > 2) {
-			removeOneVertex(graph);
+	/**
+	 * Runs the contraction experiments in parallel on the common fork-join pool.
+	 * @see #findMinCutParallel(CsrGraph, double, long, ForkJoinPool)
+	 */
+	public Cut findMinCutParallel(CsrGraph graph, double successProbability, long timeBudgetMillis) {
+		return findMinCutParallel(graph, successProbability, timeBudgetMillis, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Splits the experiments of the selected mode into fork-join tasks. Every task has its own {@link Trial}
+	 * and a {@link SplittableRandom} split from one created for the call, so tasks share nothing but the best cut
+	 * and concurrent calls on the same object do not interfere.
+	 * @param graph Undirected graph with every edge stored in both directions, like kargerMinCut.txt
+	 * @param successProbability Wanted probability of finding a min cut, which sets the number of experiments
+	 * @param timeBudgetMillis Time after which no more experiments are started, or 0 for no limit.
+	 * 			Experiments already running are finished, so the call can take one experiment longer.
+	 * @return Smallest cut found, or a cut of size 0 for graphs with less than two vertices.
+	 * 			If the budget runs out before any experiment finishes, a cut that is not {@link Cut#isFound() found}.
+	 */
+	public Cut findMinCutParallel(CsrGraph graph, double successProbability, long timeBudgetMillis,
+			ForkJoinPool pool) {
+		if (graph.getVertexCount() < 2) {
+			return new Cut(0, new int[graph.getVertexCount()], 0, 1);
 		}
+		long trials = trialsFor(mode, graph.getVertexCount(), successProbability);
+		long deadline = timeBudgetMillis > 0
+				? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis) : Long.MAX_VALUE;
+		long tasks = (long) pool.getParallelism() * TASKS_PER_THREAD;
+		long trialsPerTask = Math.max(1, (trials + tasks - 1) / tasks);
 		
-		//Edges in min cut are the edges between the remaining two vertices
-		List<Integer> keys = new ArrayList<Integer>(graph.keySet());
-		return graph.get(keys.get(0)).size();
+		AtomicReference<Cut> best = new AtomicReference<Cut>();
+		AtomicLong trialsRun = new AtomicLong();
+		pool.invoke(new TrialTask(this, graph, new SplittableRandom(), 0, trials, trialsPerTask, deadline, best, trialsRun));
+		Cut cut = best.get();
+		long run = trialsRun.get();
+		double probability = successProbabilityFor(mode, graph.getVertexCount(), run);
+		return cut == null ? new Cut(-1, null, run, probability)
+				: new Cut(cut.getSize(), cut.getPartition(), run, probability);
 	}
-
-	private void removeOneVertex(Map<Integer, List<Integer>> graph) {
-		//Select a random vertex
-		List<Integer> keys = new ArrayList<Integer>(graph.keySet());
-		int keyPos = mRandom.nextInt(keys.size());
-		Integer firstVertex = keys.get(keyPos);
-		
-		//Remove a random neighbor of that vertex
-		List<Integer> firstVertexEdges = graph.get(firstVertex);
-		int edgePos = mRandom.nextInt(firstVertexEdges.size());
-		Integer removedNeighbor = firstVertexEdges.get(edgePos);
-		List<Integer> edgesNeighbor = graph.get(removedNeighbor);
-		graph.remove(removedNeighbor);
-		
-		//Remove all edges from firstVertex to removedNeighbor
-		while (firstVertexEdges.contains(removedNeighbor)) {
-			firstVertexEdges.remove(removedNeighbor);
-		}
-		
-		//Make all edges of removedNeighbor point to the firstVertex
-		for (int vertex : edgesNeighbor) {
-			if (vertex != firstVertex) {
-				List<Integer> vertexEdges = graph.get(vertex);
-				vertexEdges.remove(removedNeighbor);
-				vertexEdges.add(firstVertex);
-				firstVertexEdges.add(vertex);
-			}
-		}
-	}
-	
-	@SuppressWarnings("unchecked")
-	static Map<Integer, List<Integer>> deepClone(Map<Integer, List<Integer>> o) {
-	    try {
-			ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-			ObjectOutputStream out = new ObjectOutputStream(byteOut);
-			out.writeObject(o);
-			out.flush();
-			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
-			return (Map<Integer, List<Integer>>) (in.readObject());
-		} catch (Exception e) {
-			e.printStackTrace();
-			return null;
+	
+	/**
+	 * A single Karger experiment finds a given min cut with probability at least 2 / (n (n - 1)),
+	 * and a Karger-Stein one with probability at least 1 / (d + 1), d being the 2 log2(n) levels
+	 * of recursion. Missing it in all of T experiments with probability p is below e^(-pT).
+	 * @return Number of experiments that find a min cut with the given probability
+	 */
+	public static long trialsFor(Mode mode, int vertexCount, double successProbability) {
+		if (!(successProbability > 0 && successProbability < 1)) {
+			throw new IllegalArgumentException("success probability must be in (0, 1): " + successProbability);
+		}
+		double trials = Math.ceil(-Math.log(1 - successProbability) * inverseTrialProbability(mode, vertexCount));
+		return (long) Math.max(1, Math.min(trials, Long.MAX_VALUE));
+	}
+	
+	/**
+	 * @return Lower bound of the probability of finding a min cut in the given number of experiments,
+	 * 			1 - (1 - p)^T for the single experiment bound p of {@link #trialsFor(Mode, int, double)}
+	 */
+	public static double successProbabilityFor(Mode mode, int vertexCount, long trials) {
+		return -Math.expm1(trials * Math.log1p(-1 / inverseTrialProbability(mode, vertexCount)));
+	}
+	
+	/**
+	 * @return Inverse of the probability of a single experiment finding a given min cut
+	 */
+	private static double inverseTrialProbability(Mode mode, int vertexCount) {
+		return mode == Mode.KARGER
+				? Math.max(1, vertexCount * (vertexCount - 1.0) / 2)
+				: 2 * Math.log(Math.max(vertexCount, 2)) / Math.log(2) + 1;
+	}
+	
+	private Trial newTrial(CsrGraph graph) {
+		return mode == Mode.KARGER ? new ContractionTrial(graph) : new RecursiveContractionTrial(graph);
+	}
+	
+	/**
+	 * Runs the experiments in [from, to), splitting the range until it fits in one task.
+	 */
+	private static class TrialTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final RandomContraction owner;
+		private final CsrGraph graph;
+		private final SplittableRandom random;
+		private final long from;
+		private final long to;
+		private final long trialsPerTask;
+		private final long deadline;
+		private final AtomicReference<Cut> best;
+		private final AtomicLong trialsRun;
+		
+		TrialTask(RandomContraction owner, CsrGraph graph, SplittableRandom random, long from, long to,
+				long trialsPerTask, long deadline, AtomicReference<Cut> best, AtomicLong trialsRun) {
+			this.owner = owner;
+			this.graph = graph;
+			this.random = random;
+			this.from = from;
+			this.to = to;
+			this.trialsPerTask = trialsPerTask;
+			this.deadline = deadline;
+			this.best = best;
+			this.trialsRun = trialsRun;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from > trialsPerTask) {
+				long middle = from + (to - from) / 2;
+				invokeAll(new TrialTask(owner, graph, random.split(), from, middle, trialsPerTask, deadline,
+								best, trialsRun),
+						new TrialTask(owner, graph, random, middle, to, trialsPerTask, deadline, best, trialsRun));
+				return;
+			}
+			if (System.nanoTime() - deadline > 0) {
+				return;
+			}
+			Trial trial = owner.newTrial(graph);
+			long count = 0;
+			for (long i = from; i < to; i++) {
+				if (System.nanoTime() - deadline > 0) {
+					break;
+				}
+				int size = trial.run(random);
+				count++;
+				Cut current = best.get();
+				if (current == null || size < current.getSize()) {
+					offer(new Cut(size, trial.getPartition(), 0, 0));
+				}
+			}
+			trialsRun.addAndGet(count);
+		}
+		
+		private void offer(Cut cut) {
+			while (true) {
+				Cut current = best.get();
+				if (current != null && current.getSize() <= cut.getSize()) {
+					return;
+				}
+				if (best.compareAndSet(current, cut)) {
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * One experiment over a flat array with every undirected edge once, with buffers reused between runs.
+	 */
+	abstract static class Trial {
+		final int vertexCount;
+		final int edgeCount;
+		final int[] tails;
+		final int[] heads;
+		
+		Trial(CsrGraph graph) {
+			vertexCount = graph.getVertexCount();
+			int[] offsets = graph.getOffsets();
+			int[] targets = graph.getTargets();
+			int count = 0;
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+					if (vertex < targets[i]) count++;
+				}
+			}
+			edgeCount = count;
+			tails = new int[edgeCount];
+			heads = new int[edgeCount];
+			count = 0;
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+					if (vertex < targets[i]) {
+						tails[count] = vertex;
+						heads[count] = targets[i];
+						count++;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return Number of edges in the cut found by this run
+		 */
+		abstract int run(SplittableRandom random);
+		
+		/**
+		 * @return Side of each vertex in the cut of the last run, 0 for the side of vertex 0 and 1 for the other
+		 */
+		abstract int[] getPartition();
+	}
+	
+	/**
+	 * One contraction experiment of Karger's algorithm.
+	 *
+	 * Contracting random edges until two vertices remain is the same as taking the edges in
+	 * a random order and joining their ends with a union-find, skipping the edges whose ends
+	 * were already joined, which are the self-loops of the contracted graph. The order is
+	 * shuffled as edges are taken, so a run stops as soon as two groups are left, and the cut
+	 * is the number of edges between them. Nothing is allocated after construction.
+	 */
+	static class ContractionTrial extends Trial {
+		private final int[] order; //edge positions, in the order of the last run
+		private final int[] parents; //union-find forest
+		private final int[] sizes; //vertices under each root
+		
+		ContractionTrial(CsrGraph graph) {
+			super(graph);
+			order = new int[edgeCount];
+			for (int i = 0; i < edgeCount; i++) {
+				order[i] = i;
+			}
+			parents = new int[vertexCount];
+			sizes = new int[vertexCount];
+		}
+		
+		@Override
+		int run(SplittableRandom random) {
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				parents[vertex] = vertex;
+				sizes[vertex] = 1;
+			}
+			int groups = vertexCount;
+			for (int i = 0; i < edgeCount && groups > 2; i++) {
+				//Take a random edge of the ones left
+				int j = i + random.nextInt(edgeCount - i);
+				int edge = order[j];
+				order[j] = order[i];
+				order[i] = edge;
+				
+				if (union(tails[edge], heads[edge])) {
+					groups--;
+				}
+			}
+			
+			//Edges in min cut are the edges between the remaining two vertices
+			int cut = 0;
+			for (int edge = 0; edge < edgeCount; edge++) {
+				if (find(tails[edge]) != find(heads[edge])) {
+					cut++;
+				}
+			}
+			return cut;
+		}
+		
+		@Override
+		int[] getPartition() {
+			int[] partition = new int[vertexCount];
+			int firstRoot = find(0);
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				partition[vertex] = find(vertex) == firstRoot ? 0 : 1;
+			}
+			return partition;
+		}
+		
+		private int find(int vertex) {
+			while (parents[vertex] != vertex) {
+				parents[vertex] = parents[parents[vertex]]; //path halving
+				vertex = parents[vertex];
+			}
+			return vertex;
+		}
+		
+		/**
+		 * @return Whether the vertices were in different groups
+		 */
+		private boolean union(int a, int b) {
+			int rootA = find(a);
+			int rootB = find(b);
+			if (rootA == rootB) {
+				return false;
+			}
+			if (sizes[rootA] < sizes[rootB]) {
+				int swap = rootA;
+				rootA = rootB;
+				rootB = swap;
+			}
+			parents[rootB] = rootA;
+			sizes[rootA] += sizes[rootB];
+			return true;
+		}
+	}
+	
+	/**
+	 * One experiment of the Karger-Stein algorithm. The graph is contracted twice, independently,
+	 * down to 1 + n / sqrt(2) vertices, the min cut of both contracted graphs is found recursively
+	 * and the smaller one is kept. Graphs of up to {@value #SMALL_GRAPH_SIZE} vertices are solved
+	 * exactly with Stoer-Wagner.
+	 *
+	 * Parallel edges are merged into one weighted edge at every level, so a graph of g vertices never
+	 * has more than g (g - 1) / 2 edges. Contracting a random edge of the multigraph is the same as
+	 * giving every weighted edge an exponential random key with its weight as rate, and joining
+	 * the edges in increasing key order with a union-find.
+	 */
+	static class RecursiveContractionTrial extends Trial {
+		private static final int SMALL_GRAPH_SIZE = 30; //vertex sets fit the bits of an int
+		
+		private final int[] weights;
+		private int[] partition;
+		
+		RecursiveContractionTrial(CsrGraph graph) {
+			super(graph);
+			weights = new int[edgeCount];
+			for (int edge = 0; edge < edgeCount; edge++) {
+				weights[edge] = 1;
+			}
+		}
+		
+		@Override
+		int run(SplittableRandom random) {
+			partition = new int[vertexCount];
+			int cut = findMinCut(new WeightedGraph(vertexCount, tails, heads, weights, edgeCount), partition, random);
+			if (partition[0] == 1) {
+				for (int vertex = 0; vertex < vertexCount; vertex++) {
+					partition[vertex] = 1 - partition[vertex];
+				}
+			}
+			return cut;
+		}
+		
+		@Override
+		int[] getPartition() {
+			return partition.clone();
+		}
+		
+		/**
+		 * Edges of one level of the recursion. Below the first level each pair of vertices has at most one.
+		 */
+		private static class WeightedGraph {
+			final int vertexCount;
+			final int[] tails;
+			final int[] heads;
+			final int[] weights;
+			final int edgeCount;
+			
+			WeightedGraph(int vertexCount, int[] tails, int[] heads, int[] weights, int edgeCount) {
+				this.vertexCount = vertexCount;
+				this.tails = tails;
+				this.heads = heads;
+				this.weights = weights;
+				this.edgeCount = edgeCount;
+			}
+		}
+		
+		/**
+		 * @param sides Filled with the side of each vertex in the cut found
+		 * @return Number of edges in the cut found
+		 */
+		private static int findMinCut(WeightedGraph graph, int[] sides, SplittableRandom random) {
+			int vertexCount = graph.vertexCount;
+			if (graph.edgeCount == 0) {
+				//No edges: vertex 0 alone is a cut of size 0
+				for (int vertex = 1; vertex < vertexCount; vertex++) {
+					sides[vertex] = 1;
+				}
+				return 0;
+			}
+			if (vertexCount <= SMALL_GRAPH_SIZE) {
+				return exactMinCut(graph, sides);
+			}
+			int targetCount = (int) Math.ceil(1 + vertexCount / Math.sqrt(2));
+			int best = Integer.MAX_VALUE;
+			int[] groups = new int[vertexCount];
+			for (int repetition = 0; repetition < 2; repetition++) {
+				int groupCount = contract(graph, targetCount, groups, random);
+				WeightedGraph contracted = mergeEdges(graph, groups, groupCount);
+				int[] groupSides = new int[groupCount];
+				int cut = findMinCut(contracted, groupSides, random);
+				if (cut < best) {
+					best = cut;
+					for (int vertex = 0; vertex < vertexCount; vertex++) {
+						sides[vertex] = groupSides[groups[vertex]];
+					}
+				}
+			}
+			return best;
+		}
+		
+		/**
+		 * Joins the ends of random edges until targetCount groups are left, or the edges run out.
+		 * @param groups Filled with the group of each vertex, numbered from 0
+		 * @return Number of groups
+		 */
+		private static int contract(WeightedGraph graph, int targetCount, int[] groups, SplittableRandom random) {
+			int vertexCount = graph.vertexCount;
+			int edgeCount = graph.edgeCount;
+			
+			//Exponential keys as float bits, which keep the order of positive floats, above the edge position
+			long[] order = new long[edgeCount];
+			for (int edge = 0; edge < edgeCount; edge++) {
+				float key = (float) (-Math.log(1 - random.nextDouble()) / graph.weights[edge]);
+				order[edge] = (long) Float.floatToIntBits(key) << 32 | edge;
+			}
+			Arrays.sort(order);
+			
+			int[] parents = new int[vertexCount];
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				parents[vertex] = vertex;
+			}
+			int groupCount = vertexCount;
+			for (int i = 0; i < edgeCount && groupCount > targetCount; i++) {
+				int edge = (int) order[i];
+				int rootA = find(parents, graph.tails[edge]);
+				int rootB = find(parents, graph.heads[edge]);
+				if (rootA != rootB) {
+					//Random linking keeps the trees shallow on average without sizes
+					if (random.nextBoolean()) {
+						parents[rootA] = rootB;
+					} else {
+						parents[rootB] = rootA;
+					}
+					groupCount--;
+				}
+			}
+			
+			int[] numbers = new int[vertexCount];
+			int count = 0;
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				if (parents[vertex] == vertex) {
+					numbers[vertex] = count++;
+				}
+			}
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				groups[vertex] = numbers[find(parents, vertex)];
+			}
+			return groupCount;
+		}
+		
+		/**
+		 * Builds the contracted graph: edges inside a group are dropped and edges between
+		 * the same two groups are merged, adding up their weights. The edges are bucketed by
+		 * their smaller group, and each bucket finds repeated groups with a stamped array.
+		 */
+		private static WeightedGraph mergeEdges(WeightedGraph graph, int[] groups, int groupCount) {
+			int[] offsets = new int[groupCount + 1];
+			for (int edge = 0; edge < graph.edgeCount; edge++) {
+				int tail = groups[graph.tails[edge]];
+				int head = groups[graph.heads[edge]];
+				if (tail != head) {
+					offsets[Math.min(tail, head) + 1]++;
+				}
+			}
+			for (int group = 0; group < groupCount; group++) {
+				offsets[group + 1] += offsets[group];
+			}
+			int[] bucketHeads = new int[offsets[groupCount]];
+			int[] bucketWeights = new int[offsets[groupCount]];
+			int[] next = Arrays.copyOf(offsets, groupCount);
+			for (int edge = 0; edge < graph.edgeCount; edge++) {
+				int tail = groups[graph.tails[edge]];
+				int head = groups[graph.heads[edge]];
+				if (tail != head) {
+					int position = next[Math.min(tail, head)]++;
+					bucketHeads[position] = Math.max(tail, head);
+					bucketWeights[position] = graph.weights[edge];
+				}
+			}
+			
+			int[] tails = new int[bucketHeads.length];
+			int[] heads = new int[bucketHeads.length];
+			int[] weights = new int[bucketHeads.length];
+			int[] stamps = new int[groupCount]; //tail + 1 when the head was seen in the bucket of tail
+			int[] positions = new int[groupCount]; //where the merged edge to the head is
+			int edgeCount = 0;
+			for (int tail = 0; tail < groupCount; tail++) {
+				for (int i = offsets[tail]; i < offsets[tail + 1]; i++) {
+					int head = bucketHeads[i];
+					if (stamps[head] == tail + 1) {
+						weights[positions[head]] += bucketWeights[i];
+					} else {
+						stamps[head] = tail + 1;
+						positions[head] = edgeCount;
+						tails[edgeCount] = tail;
+						heads[edgeCount] = head;
+						weights[edgeCount] = bucketWeights[i];
+						edgeCount++;
+					}
+				}
+			}
+			return new WeightedGraph(groupCount, tails, heads, weights, edgeCount);
+		}
+		
+		private static int find(int[] parents, int vertex) {
+			while (parents[vertex] != vertex) {
+				parents[vertex] = parents[parents[vertex]]; //path halving
+				vertex = parents[vertex];
+			}
+			return vertex;
+		}
+		
+		/**
+		 * Stoer-Wagner on a weight matrix, O(n^3). Each phase adds the vertices one by one, always
+		 * the one most tightly connected to the added ones; the last one alone is a min cut between
+		 * the last two, which are then merged. The smallest of these cuts is a min cut of the graph.
+		 */
+		private static int exactMinCut(WeightedGraph graph, int[] sides) {
+			int vertexCount = graph.vertexCount;
+			int[][] matrix = new int[vertexCount][vertexCount];
+			for (int edge = 0; edge < graph.edgeCount; edge++) {
+				matrix[graph.tails[edge]][graph.heads[edge]] += graph.weights[edge];
+				matrix[graph.heads[edge]][graph.tails[edge]] += graph.weights[edge];
+			}
+			int[] members = new int[vertexCount]; //original vertices merged into each one, as bits
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				members[vertex] = 1 << vertex;
+			}
+			boolean[] merged = new boolean[vertexCount];
+			boolean[] added = new boolean[vertexCount];
+			int[] connections = new int[vertexCount];
+			int best = Integer.MAX_VALUE;
+			int bestMembers = 0;
+			for (int remaining = vertexCount; remaining > 1; remaining--) {
+				Arrays.fill(added, false);
+				Arrays.fill(connections, 0);
+				int previous = -1;
+				int last = -1;
+				for (int step = 0; step < remaining; step++) {
+					int next = -1;
+					for (int vertex = 0; vertex < vertexCount; vertex++) {
+						if (!merged[vertex] && !added[vertex] && (next == -1 || connections[vertex] > connections[next])) {
+							next = vertex;
+						}
+					}
+					added[next] = true;
+					previous = last;
+					last = next;
+					for (int vertex = 0; vertex < vertexCount; vertex++) {
+						connections[vertex] += matrix[next][vertex];
+					}
+				}
+				if (connections[last] < best) {
+					best = connections[last];
+					bestMembers = members[last];
+				}
+				for (int vertex = 0; vertex < vertexCount; vertex++) {
+					matrix[previous][vertex] += matrix[last][vertex];
+					matrix[vertex][previous] = matrix[previous][vertex];
+				}
+				matrix[previous][previous] = 0;
+				members[previous] |= members[last];
+				merged[last] = true;
+			}
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				sides[vertex] = (bestMembers >>> vertex) & 1;
+			}
+			return best;
 		}
 	}
 
@@ -0,0 +1,179 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Maintains quantiles of the last numbers of a stream, like {@link HeapMedianMantainer}
+ * maintains the median of all of them.
+ *
+ * Every quantile keeps two heaps over the window: a max-heap with the smallest numbers, as many as the
+ * rank of the quantile, and a min-heap with the rest, so the quantile is the top of the max-heap.
+ * The heaps are {@link IndexedMinHeap}s whose ids are positions in the window, used as a circular
+ * buffer, so the number that leaves the window is removed in O(log n). The max-heap stores ~number
+ * as key, which reverses the order.
+ *
+ * The q quantile of n numbers is the ceil(q*n)th smallest one, so the 0.5 quantile is the same
+ * median as in {@link HeapMedianMantainer}. Memory is bounded by the window size.
+ */
+public class SlidingWindowQuantiles {
+	
+	private static final double EPSILON = 1e-9;
+	
+	private final int windowSize;
+	private final QuantileHeaps[] quantiles;
+	private long count; //numbers added so far
+	
+	public static void main(String[] args) throws IOException {
+		int[] numbers = MappedTextReader.readInts(new File("data/Median.txt"));
+		
+		//a window as big as the stream gives the same medians as HeapMedianMantainer
+		SlidingWindowQuantiles medians = new SlidingWindowQuantiles(numbers.length, 0.5);
+		int medianSum = 0;
+		for (int number : numbers) {
+			medians.add(number);
+			medianSum += medians.getQuantile(0);
+		}
+		System.out.println("Median sum: " + medianSum);
+		//prints 46831213
+		
+		SlidingWindowQuantiles rolling = new SlidingWindowQuantiles(1000, 0.5, 0.9, 0.99);
+		for (int number : numbers) {
+			rolling.add(number);
+		}
+		System.out.println("Last 1000 numbers: median " + rolling.getQuantile(0)
+				+ ", p90 " + rolling.getQuantile(1) + ", p99 " + rolling.getQuantile(2));
+	}
+	
+	/**
+	 * @param windowSize Number of last numbers the quantiles are computed over
+	 * @param quantiles Quantiles to maintain, in (0, 1]
+	 */
+	public SlidingWindowQuantiles(int windowSize, double... quantiles) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("window size must be positive: " + windowSize);
+		}
+		if (quantiles.length == 0) {
+			throw new IllegalArgumentException("no quantiles");
+		}
+		this.windowSize = windowSize;
+		this.quantiles = new QuantileHeaps[quantiles.length];
+		for (int i = 0; i < quantiles.length; i++) {
+			if (!(quantiles[i] > 0 && quantiles[i] <= 1)) {
+				throw new IllegalArgumentException("quantile must be in (0, 1]: " + quantiles[i]);
+			}
+			this.quantiles[i] = new QuantileHeaps(quantiles[i], windowSize);
+		}
+	}
+	
+	/**
+	 * Numbers currently in the window.
+	 */
+	public int size() {
+		return (int) Math.min(count, windowSize);
+	}
+	
+	/**
+	 * Adds a number, and drops the oldest one if the window is full, in O(log n) per quantile.
+	 */
+	public void add(int number) {
+		int slot = (int) (count % windowSize);
+		boolean full = count >= windowSize;
+		int size = full ? windowSize : (int) count + 1;
+		for (QuantileHeaps heaps : quantiles) {
+			if (full) {
+				heaps.remove(slot);
+			}
+			heaps.add(slot, number);
+			heaps.rebalance(size);
+		}
+		count++;
+	}
+	
+	/**
+	 * @param index Position of the quantile in the constructor
+	 * @return Value of the quantile over the numbers in the window
+	 */
+	public int getQuantile(int index) {
+		if (count == 0) {
+			throw new IllegalStateException("no numbers added");
+		}
+		return quantiles[index].get();
+	}
+	
+	/**
+	 * @return Value of every quantile, in the order of the constructor
+	 */
+	public int[] getQuantiles() {
+		int[] values = new int[quantiles.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = getQuantile(i);
+		}
+		return values;
+	}
+	
+	/**
+	 * @return ceil(quantile * size), between 1 and size, ignoring the rounding error of the product
+	 */
+	private static int rank(double quantile, int size) {
+		double exact = quantile * size;
+		long rounded = Math.round(exact);
+		long rank = Math.abs(exact - rounded) < EPSILON * size ? rounded : (long) Math.ceil(exact);
+		return (int) Math.max(1, Math.min(size, rank));
+	}
+	
+	/**
+	 * The two heaps of one quantile. Every number in low is smaller than or equal to every number in high.
+	 */
+	private static class QuantileHeaps {
+		private final double quantile;
+		private final IndexedMinHeap low; //keys are ~number
+		private final IndexedMinHeap high;
+		
+		QuantileHeaps(double quantile, int windowSize) {
+			this.quantile = quantile;
+			low = new IndexedMinHeap(windowSize);
+			high = new IndexedMinHeap(windowSize);
+		}
+		
+		int get() {
+			return ~low.getKey(low.peek());
+		}
+		
+		void add(int slot, int number) {
+			if (!low.isEmpty() && number <= get()) {
+				low.insert(slot, ~number);
+			} else {
+				high.insert(slot, number);
+			}
+		}
+		
+		void remove(int slot) {
+			if (low.contains(slot)) {
+				low.remove(slot);
+			} else {
+				high.remove(slot);
+			}
+		}
+		
+		/**
+		 * Moves numbers between the heaps until low has as many as the rank of the quantile.
+		 * The size only changes by one at a time, so this moves at most a couple of numbers.
+		 */
+		void rebalance(int size) {
+			int rank = rank(quantile, size);
+			while (low.size() > rank) {
+				int slot = low.peek();
+				int number = ~low.getKey(slot);
+				low.poll();
+				high.insert(slot, number);
+			}
+			while (low.size() < rank) {
+				int slot = high.peek();
+				int number = high.getKey(slot);
+				high.poll();
+				low.insert(slot, ~number);
+			}
+		}
+	}
+}
@@ -2,8 +2,10 @@ package com.guavabot.algo1;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Uses a hash table to compute the number of target values t in the interval [-10000,10000] (inclusive) 
@@ -11,37 +13,257 @@ import java.util.Scanner;
  */
 public class TwoSumHashTable {
 	
+	private static final int TARGETS_PER_TASK = 64;
+	
+	/**
+	 * Receives the progress of a count. Parallel counts call it from several threads.
+	 */
+	public interface ProgressListener {
+		/**
+		 * @param targetsChecked Targets checked so far
+		 * @param targetCount Targets in the interval
+		 * @param twoSums Targets found so far with two distinct numbers that add up to them
+		 */
+		void onProgress(int targetsChecked, int targetCount, int twoSums);
+	}
+	
 	public static void main(String[] args) throws IOException {
-		HashSet<Long> set = new HashSet<Long>();
-		File file = new File("data/2sum.txt");
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextLong()) {
-			set.add(scanner.nextLong());
-		}
-		scanner.close();
+		long[] values = BinaryDataFile.loadLongs(new File("data/2sum.txt"));
 		
-		System.out.println("Set size: " + set.size());
+		System.out.println("Input size: " + values.length);
 		TwoSumHashTable twoSum = new TwoSumHashTable();
-		int count = twoSum.computeCountTwoSums(set, -10_000, 10_000);
+		int count = twoSum.computeCountTwoSumsSorted(values, -10_000, 10_000);
 		System.out.println("Two sums: " + count);
 		//prints: 427
 	}
 	
-	public int computeCountTwoSums(HashSet<Long> set, int minTarget, int maxTarget) {
+	public int computeCountTwoSums(LongOpenHashSet set, int minTarget, int maxTarget) {
+		return computeCountTwoSums(set, minTarget, maxTarget, null);
+	}
+	
+	/**
+	 * @param listener Called every 500 targets, or null
+	 */
+	public int computeCountTwoSums(LongOpenHashSet set, int minTarget, int maxTarget, ProgressListener listener) {
+		long[] values = set.toArray();
+		int targetCount = (int) Math.max(0, (long) maxTarget - minTarget + 1);
 		int count = 0;
 		for (int target = minTarget; target <= maxTarget; target++) {
-			if (target % 500 == 0) {
-				System.out.println("Current target: " + target + "; current count: " + count);
+			if (listener != null && target % 500 == 0) {
+				listener.onProgress(target - minTarget, targetCount, count);
 			}
-			if (hasTwoSum(set, target)) {
+			if (hasTwoSum(set, values, target)) {
 				count++;
 			}
 		}
 		return count;
 	}
 	
-	private static boolean hasTwoSum(HashSet<Long> set, int target) {
-		for (long first : set) {
+	/**
+	 * Same count as {@link #computeCountTwoSums(LongOpenHashSet, int, int)} using the common fork-join pool.
+	 */
+	public int computeCountTwoSumsParallel(LongOpenHashSet set, int minTarget, int maxTarget) {
+		return computeCountTwoSumsParallel(set, minTarget, maxTarget, ForkJoinPool.commonPool(), null);
+	}
+	
+	/**
+	 * Splits the interval of targets into fork-join tasks of {@value #TARGETS_PER_TASK} targets.
+	 * The targets are independent, so every task counts its own and the counts are added
+	 * when the tasks are joined; only the progress is shared between tasks.
+	 * @param listener Called after each task with the progress so far, or null. It must be thread-safe.
+	 */
+	public int computeCountTwoSumsParallel(LongOpenHashSet set, int minTarget, int maxTarget,
+			ForkJoinPool pool, ProgressListener listener) {
+		if (maxTarget < minTarget) {
+			return 0;
+		}
+		if ((long) maxTarget - minTarget >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("interval too big: [" + minTarget + ", " + maxTarget + "]");
+		}
+		long[] values = set.toArray();
+		Progress progress = listener == null ? null : new Progress(listener, maxTarget - minTarget + 1);
+		return pool.invoke(new CountTask(set, values, minTarget, maxTarget + 1L, progress));
+	}
+	
+	private static class Progress {
+		private final ProgressListener listener;
+		private final int targetCount;
+		private final AtomicInteger targetsChecked = new AtomicInteger();
+		private final AtomicInteger twoSums = new AtomicInteger();
+		
+		Progress(ProgressListener listener, int targetCount) {
+			this.listener = listener;
+			this.targetCount = targetCount;
+		}
+		
+		/**
+		 * The two sums are added first, so when the last targets are checked all of them are counted.
+		 */
+		void add(int targets, int found) {
+			twoSums.addAndGet(found);
+			int checked = targetsChecked.addAndGet(targets);
+			listener.onProgress(checked, targetCount, twoSums.get());
+		}
+	}
+	
+	/**
+	 * Counts the targets in [from, to) with a two sum.
+	 */
+	private static class CountTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		
+		private final LongOpenHashSet set;
+		private final long[] values;
+		private final long from;
+		private final long to;
+		private final Progress progress;
+		
+		CountTask(LongOpenHashSet set, long[] values, long from, long to, Progress progress) {
+			this.set = set;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+			this.progress = progress;
+		}
+		
+		@Override
+		protected Integer compute() {
+			if (to - from <= TARGETS_PER_TASK) {
+				int count = 0;
+				for (long target = from; target < to; target++) {
+					if (hasTwoSum(set, values, (int) target)) {
+						count++;
+					}
+				}
+				if (progress != null) {
+					progress.add((int) (to - from), count);
+				}
+				return count;
+			}
+			long middle = from + (to - from) / 2;
+			CountTask left = new CountTask(set, values, from, middle, progress);
+			left.fork();
+			int count = new CountTask(set, values, middle, to, progress).compute();
+			return count + left.join();
+		}
+	}
+	
+	/**
+	 * Same count as {@link #computeCountTwoSums(LongOpenHashSet, int, int)} in a single pass over the sorted values,
+	 * instead of a scan of the whole set per target.
+	 * 
+	 * For each value x, in increasing order, the values y > x with x+y in the interval form a window
+	 * of the sorted array that only moves to the left, so two pointers find it. The values are also
+	 * grouped in 64 bit words once, and the words of each window are shifted by x and ORed into a bitmap
+	 * of the targets. So a window costs the smaller of its values and interval width / 64 words, which
+	 * keeps dense inputs from paying for every pair, and the sweep ends when every target is marked.
+	 * @param values Input numbers, repeated ones are counted once; sums must not overflow a long
+	 * @return Number of targets in [minTarget, maxTarget] that are the sum of two distinct numbers
+	 */
+	public int computeCountTwoSumsSorted(long[] values, long minTarget, long maxTarget) {
+		if (maxTarget < minTarget) {
+			return 0;
+		}
+		if (maxTarget - minTarget >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("interval too big: [" + minTarget + ", " + maxTarget + "]");
+		}
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int size = removeRepeated(sorted);
+		return countTwoSumsSorted(sorted, size, minTarget, maxTarget);
+	}
+	
+	/**
+	 * Counts the targets in [minTarget, maxTarget], at most Integer.MAX_VALUE of them,
+	 * with the sweep of {@link #computeCountTwoSumsSorted(long[], long, long)}.
+	 * @param sorted Distinct values in increasing order in the first positions
+	 * @param size Number of values in sorted
+	 */
+	static int countTwoSumsSorted(long[] sorted, int size, long minTarget, long maxTarget) {
+		//Word of each value: the values v with the same v >> 6, as bits v & 63
+		long[] wordIndexes = new long[size];
+		long[] wordBits = new long[size];
+		int[] wordOf = new int[size];
+		int words = 0;
+		for (int i = 0; i < size; i++) {
+			long index = sorted[i] >> 6;
+			if (words == 0 || wordIndexes[words - 1] != index) {
+				wordIndexes[words++] = index;
+			}
+			wordBits[words - 1] |= 1L << sorted[i];
+			wordOf[i] = words - 1;
+		}
+		
+		int targetCount = (int) (maxTarget - minTarget + 1);
+		long[] targets = new long[(targetCount >>> 6) + 2]; //bit t is minTarget + t, plus a word for shifts
+		int marked = 0;
+		int low = size; //first position whose sum with sorted[i] is at least minTarget
+		int high = size - 1; //last position whose sum with sorted[i] is at most maxTarget
+		for (int i = 0; i < size && marked < targetCount; i++) {
+			long first = sorted[i];
+			while (high > i && first + sorted[high] > maxTarget) {
+				high--;
+			}
+			if (high <= i) {
+				break; //only smaller values are left on the right of i
+			}
+			while (low > 0 && first + sorted[low - 1] >= minTarget) {
+				low--;
+			}
+			int from = Math.max(low, i + 1);
+			if (from > high) {
+				continue;
+			}
+			int firstWord = wordOf[from];
+			int lastWord = wordOf[high];
+			for (int k = firstWord; k <= lastWord; k++) {
+				long bits = wordBits[k];
+				if (k == firstWord) {
+					bits &= -1L << sorted[from]; //drops values before the window
+				}
+				if (k == lastWord) {
+					bits &= -1L >>> (63 - (sorted[high] & 63)); //drops values after the window
+				}
+				//Target of bit 0 of the word; may be negative, but the bits left are all in the interval
+				long base = (wordIndexes[k] << 6) + first - minTarget;
+				int word = (int) (base >> 6); //rounds down for negative bases too
+				int shift = (int) base & 63;
+				if (word >= 0) {
+					marked += mark(targets, word, bits << shift);
+				}
+				if (shift != 0) {
+					marked += mark(targets, word + 1, bits >>> (64 - shift));
+				}
+			}
+		}
+		return marked;
+	}
+	
+	/**
+	 * @return Number of bits that were not set yet
+	 */
+	private static int mark(long[] targets, int word, long bits) {
+		int added = Long.bitCount(bits & ~targets[word]);
+		targets[word] |= bits;
+		return added;
+	}
+	
+	/**
+	 * Moves the distinct values of a sorted array to its beginning.
+	 * @return Number of distinct values
+	 */
+	static int removeRepeated(long[] sorted) {
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (size == 0 || sorted[i] != sorted[size - 1]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return size;
+	}
+	
+	private static boolean hasTwoSum(LongOpenHashSet set, long[] values, int target) {
+		for (long first : values) {
 			long complement = target - first;
 			if (first != complement) { //should be distinct
 				if (set.contains(complement)) {
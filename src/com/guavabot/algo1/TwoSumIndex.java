@@ -0,0 +1,210 @@
+package com.guavabot.algo1;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers two sum queries over a set of numbers that is indexed once and reused,
+ * instead of rebuilding the table for every interval like {@link TwoSumHashTable}.
+ *
+ * The distinct numbers are kept sorted in a primitive array, plus a {@link LongOpenHashSet}
+ * to tell repeated numbers apart. Queries for one target take each number below half the target
+ * from the array and look up its complement in the set, and interval counts use the sweep of
+ * {@link TwoSumHashTable#computeCountTwoSumsSorted(long[], long, long)}. Inserted numbers wait in
+ * a small buffer that is sorted and merged into the array by the next interval count.
+ *
+ * An index can be shared between threads: queries hold a read lock, so they run concurrently,
+ * and only inserts and merging the buffer take the write lock. Sums must not overflow a long.
+ */
+public class TwoSumIndex {
+	
+	private static final int INITIAL_PENDING_CAPACITY = 16;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final LongOpenHashSet set;
+	private long[] sorted;
+	private int size; //numbers in sorted
+	private long[] pending; //inserted numbers not merged into sorted yet
+	private int pendingSize;
+	
+	public static void main(String[] args) throws IOException {
+		TwoSumIndex index = new TwoSumIndex(BinaryDataFile.loadLongs(new File("data/2sum.txt")));
+		System.out.println("Index size: " + index.size());
+		System.out.println("Two sums: " + index.countTargets(-10_000, 10_000));
+		//prints: 427
+	}
+	
+	/**
+	 * @param values Numbers to index; repeated ones are kept once
+	 */
+	public TwoSumIndex(long[] values) {
+		sorted = values.clone();
+		Arrays.sort(sorted);
+		size = TwoSumHashTable.removeRepeated(sorted);
+		set = new LongOpenHashSet(size);
+		for (int i = 0; i < size; i++) {
+			set.add(sorted[i]);
+		}
+		pending = new long[INITIAL_PENDING_CAPACITY];
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return set.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public boolean contains(long value) {
+		lock.readLock().lock();
+		try {
+			return set.contains(value);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a number to the index. It is merged into the sorted numbers by the next interval count.
+	 * @return Whether the number was added, false if it was already indexed
+	 */
+	public boolean insert(long value) {
+		lock.writeLock().lock();
+		try {
+			if (!set.add(value)) {
+				return false;
+			}
+			if (pendingSize == pending.length) {
+				pending = Arrays.copyOf(pending, pendingSize * 2);
+			}
+			pending[pendingSize++] = value;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return Whether two distinct indexed numbers add up to the target
+	 */
+	public boolean hasPair(long target) {
+		lock.readLock().lock();
+		try {
+			for (int i = 0; i < size && sorted[i] < target - sorted[i]; i++) {
+				if (set.contains(target - sorted[i])) {
+					return true;
+				}
+			}
+			for (int i = 0; i < pendingSize; i++) {
+				if (pending[i] != target - pending[i] && set.contains(target - pending[i])) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The smaller number x of every pair of distinct indexed numbers x < y with x+y = target,
+	 * 			in increasing order. The other number of each pair is target - x.
+	 */
+	public long[] listPairs(long target) {
+		lock.readLock().lock();
+		try {
+			long[] firsts = new long[16];
+			int count = 0;
+			for (int i = 0; i < size && sorted[i] < target - sorted[i]; i++) {
+				if (set.contains(target - sorted[i])) {
+					firsts = append(firsts, count++, sorted[i]);
+				}
+			}
+			if (pendingSize > 0) {
+				//A pair with its smaller number in the buffer is only found from the buffer
+				for (int i = 0; i < pendingSize; i++) {
+					if (pending[i] < target - pending[i] && set.contains(target - pending[i])) {
+						firsts = append(firsts, count++, pending[i]);
+					}
+				}
+				Arrays.sort(firsts, 0, count);
+			}
+			return Arrays.copyOf(firsts, count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return Number of targets in [minTarget, maxTarget] that are the sum of two distinct indexed numbers
+	 */
+	public int countTargets(long minTarget, long maxTarget) {
+		if (maxTarget < minTarget) {
+			return 0;
+		}
+		if (maxTarget - minTarget >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("interval too big: [" + minTarget + ", " + maxTarget + "]");
+		}
+		lock.readLock().lock();
+		boolean readLocked = true;
+		try {
+			if (pendingSize > 0) {
+				//The read lock cannot be upgraded: merge under the write lock and downgrade
+				lock.readLock().unlock();
+				readLocked = false;
+				lock.writeLock().lock();
+				try {
+					mergePending();
+					lock.readLock().lock();
+					readLocked = true;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+			return TwoSumHashTable.countTwoSumsSorted(sorted, size, minTarget, maxTarget);
+		} finally {
+			if (readLocked) {
+				lock.readLock().unlock();
+			}
+		}
+	}
+	
+	private static long[] append(long[] array, int count, long value) {
+		if (count == array.length) {
+			array = Arrays.copyOf(array, count * 2);
+		}
+		array[count] = value;
+		return array;
+	}
+	
+	/**
+	 * Sorts the inserted numbers and merges them with the sorted ones from the end,
+	 * so the array is only copied when it has to grow. Must be called holding the write lock.
+	 */
+	private void mergePending() {
+		if (pendingSize == 0) {
+			return;
+		}
+		Arrays.sort(pending, 0, pendingSize);
+		int newSize = size + pendingSize;
+		if (newSize > sorted.length) {
+			sorted = Arrays.copyOf(sorted, Math.max(newSize, sorted.length + (sorted.length >> 1)));
+		}
+		int i = size - 1;
+		int j = pendingSize - 1;
+		for (int k = newSize - 1; j >= 0; k--) {
+			if (i >= 0 && sorted[i] > pending[j]) {
+				sorted[k] = sorted[i--];
+			} else {
+				sorted[k] = pending[j--];
+			}
+		}
+		size = newSize;
+		pendingSize = 0;
+	}
+}